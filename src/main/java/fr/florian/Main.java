@@ -1,17 +1,31 @@
 package fr.florian;
 
+import fr.florian.engine.graphics.CameraUniforms;
+import fr.florian.engine.graphics.IndirectRenderer;
+import fr.florian.engine.graphics.MeshArena;
+import fr.florian.engine.graphics.MeshUploadQueue;
 import fr.florian.engine.graphics.Renderer;
 import fr.florian.engine.graphics.Shader;
-import fr.florian.engine.objects.Chunk;
+import fr.florian.engine.graphics.VertexFormat;
+import fr.florian.engine.objects.Blocks;
+import fr.florian.engine.objects.ChunkMesher;
 import fr.florian.engine.objects.Camera;
 import fr.florian.engine.maths.Vector3f;
 import fr.florian.engine.io.Window;
 import fr.florian.engine.io.Input;
+import fr.florian.engine.world.ChunkCodecs;
+import fr.florian.engine.world.ChunkScheduler;
+import fr.florian.engine.world.NoiseTerrainGenerator;
+import fr.florian.engine.world.RegionStorage;
+import fr.florian.engine.world.TerrainGenerator;
+import fr.florian.engine.world.World;
 import org.lwjgl.glfw.GLFW;
 
+import java.nio.file.Path;
+
 /**
  * Main class for the 3D chunk generation visualizer.
- * Initializes the window, shaders, camera, and chunk,
+ * Initializes the window, shaders, camera, and world,
  * and manages the main update and render loop.
  */
 public class Main implements Runnable {
@@ -34,8 +48,80 @@ public class Main implements Runnable {
 	/** The shader used for rendering. */
 	public Shader shader;
 
-	/** A single chunk displayed in the scene. */
-	public Chunk chunk1;
+	/** The shader used for rendering instanced chunk meshes. */
+	public Shader instancedShader;
+
+	/** The shader used for rendering chunk meshes with packed vertices. */
+	public Shader packedShader;
+
+	/** The shader used for rendering chunk meshes with multi-draw indirect calls. */
+	public Shader indirectShader;
+
+	/** Initial number of vertices of the shared chunk mesh arena (8 MB of packed vertices). */
+	private static final int ARENA_VERTICES = 1 << 20;
+
+	/** Initial number of indices of the shared chunk mesh arena (6 MB). */
+	private static final int ARENA_INDICES = 3 << 19;
+
+	/** Shared buffers holding every chunk mesh when multi-draw indirect rendering is enabled. */
+	public MeshArena arena = new MeshArena(VertexFormat.PACKED, ARENA_VERTICES, ARENA_INDICES);
+
+	/** Renderer drawing every chunk mesh of the arena in a single call. */
+	public IndirectRenderer indirectRenderer;
+
+	/** Camera matrices uploaded once per frame and read by every shader. */
+	public CameraUniforms cameraUniforms = new CameraUniforms();
+
+	/** Maximum time spent uploading chunk meshes per frame (2 ms). */
+	private static final long UPLOAD_TIME_BUDGET = 2_000_000L;
+
+	/** Maximum chunk mesh data uploaded per frame (4 MB). */
+	private static final long UPLOAD_BYTE_BUDGET = 4L * 1024 * 1024;
+
+	/** Queue of chunk meshes built on worker threads, uploaded within a per-frame budget. */
+	public MeshUploadQueue uploadQueue = new MeshUploadQueue(UPLOAD_TIME_BUDGET, UPLOAD_BYTE_BUDGET);
+
+	/** Seed of the generated terrain. */
+	private static final long SEED = 20240601L;
+
+	/** Generator filling the chunks with terrain. */
+	public TerrainGenerator generator = new NoiseTerrainGenerator(SEED, -12, 8);
+
+	/** Directory where the chunks of the world are saved. */
+	private static final Path SAVE_DIRECTORY = Path.of("saves", "world-" + SEED);
+
+	/** Memory budget of the cache of recently unloaded chunks (64 MB). */
+	private static final long CHUNK_CACHE_BUDGET = 64L * 1024 * 1024;
+
+	/** Worker threads shared by every chunk for loading, saving, generation and meshing. */
+	public ChunkScheduler scheduler;
+
+	/** Radius (in chunks) around the camera within which chunks are loaded. */
+	private static final int VIEW_DISTANCE = 20;
+
+	/** Distances (in chunks) beyond which chunks are meshed at each coarser level of detail. */
+	private static final int[] LOD_DISTANCES = {6, 10, 14};
+
+	/** Extra radius (in chunks) before loaded chunks are unloaded. */
+	private static final int UNLOAD_HYSTERESIS = 2;
+
+	/** The streamed world displayed in the scene. */
+	public World world;
+
+	/** Whether the meshing mode toggle key was held during the previous frame. */
+	private boolean meshModeKeyDown;
+
+	/** Whether the occlusion culling toggle key was held during the previous frame. */
+	private boolean occlusionKeyDown;
+
+	/** Whether the multi-draw indirect toggle key was held during the previous frame. */
+	private boolean indirectKeyDown;
+
+	/** Whether the vertex format toggle key was held during the previous frame. */
+	private boolean vertexFormatKeyDown;
+
+	/** Whether the level of detail toggle key was held during the previous frame. */
+	private boolean lodKeyDown;
 
 	/** The camera used to view and navigate the 3D scene. */
 	public Camera camera = new Camera(new Vector3f(0, 1, -1), new Vector3f(0, 0, 0));
@@ -49,18 +135,42 @@ public class Main implements Runnable {
 	}
 
 	/**
-	 * Initializes the window, shader, renderer, and the first chunk.
+	 * Initializes the window, shader, renderer, block textures and the world.
 	 */
 	public void init() {
 		window = new Window(WIDTH, HEIGHT, "Voxel Engine");
 		shader = new Shader("/shaders/vertex.glsl", "/shaders/fragment.glsl");
-		renderer = new Renderer(window, shader);
+		instancedShader = new Shader("/shaders/instanced_vertex.glsl", "/shaders/fragment.glsl");
+		packedShader = new Shader("/shaders/packed_vertex.glsl", "/shaders/fragment.glsl");
+		indirectShader = new Shader(arena.getFormat() == VertexFormat.PACKED ? "/shaders/packed_indirect_vertex.glsl"
+				: "/shaders/indirect_vertex.glsl", "/shaders/fragment.glsl");
+		indirectRenderer = new IndirectRenderer(indirectShader, arena);
+		renderer = new Renderer(window, shader, instancedShader, packedShader, indirectRenderer, cameraUniforms);
 
 		window.setBackgroundColor(1.0f, 0.0f, 0.0f); // red background
 		window.create();
 		shader.create();
+		instancedShader.create();
+		packedShader.create();
+		indirectShader.create();
+		cameraUniforms.create();
+		arena.create();
+		indirectRenderer.create();
+		uploadQueue.setArena(arena);
+		Blocks.createTextures();
 
-		chunk1 = new Chunk(new Vector3f(0, -24, 0));
+		scheduler = new ChunkScheduler(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		RegionStorage regions = new RegionStorage(SAVE_DIRECTORY, ChunkCodecs.RUN_LENGTH_LZ);
+		world = new World(generator, regions, CHUNK_CACHE_BUDGET, scheduler, uploadQueue, VIEW_DISTANCE, UNLOAD_HYSTERESIS);
+		world.setLodDistances(LOD_DISTANCES);
+		window.setDebugInfo(() -> "Sections: " + world.getDrawnCount() + " drawn, " + world.getCulledCount() + " culled, "
+				+ world.getOccludedCount() + " occluded" + (world.isOcclusionCulling() ? "" : " (occlusion culling off)")
+				+ " | Vertices: " + world.getDrawnVertexCount() + " drawn (" + ChunkMesher.getMode() + ")"
+				+ (uploadQueue.getArena() != null ? " | Indirect: " + indirectRenderer.getLastDrawCount() + " draws in 1 call, arena "
+						+ Math.round(arena.getUtilisation() * 100) + "% used, " + Math.round(arena.getFragmentation() * 100) + "% fragmented" : "")
+				+ " | State changes: " + renderer.getStateChangeCount()
+				+ " | LOD: " + world.getDrawnCount(0) + "/" + world.getDrawnCount(1) + "/" + world.getDrawnCount(2) + "/"
+				+ world.getDrawnCount(3) + " sections" + (world.isLodEnabled() ? "" : " (off)"));
 	}
 
 	/**
@@ -78,6 +188,45 @@ public class Main implements Runnable {
 				window.setFullscreen(!window.isFullscreen());
 			}
 
+			// Cycle between greedy, naive and instanced chunk meshing (G)
+			boolean meshModeKey = Input.isKeyDown(GLFW.GLFW_KEY_G);
+			if (meshModeKey && !meshModeKeyDown) {
+				ChunkMesher.Mode[] modes = ChunkMesher.Mode.values();
+				ChunkMesher.setMode(modes[(ChunkMesher.getMode().ordinal() + 1) % modes.length]);
+				world.markAllDirty();
+			}
+			meshModeKeyDown = meshModeKey;
+
+			// Toggle occlusion culling (O)
+			boolean occlusionKey = Input.isKeyDown(GLFW.GLFW_KEY_O);
+			if (occlusionKey && !occlusionKeyDown) {
+				world.setOcclusionCulling(!world.isOcclusionCulling());
+			}
+			occlusionKeyDown = occlusionKey;
+
+			// Toggle multi-draw indirect rendering of the chunks (M), remeshing them into or out of the arena
+			boolean indirectKey = Input.isKeyDown(GLFW.GLFW_KEY_M);
+			if (indirectKey && !indirectKeyDown) {
+				uploadQueue.setArena(uploadQueue.getArena() == null ? arena : null);
+				world.markAllDirty();
+			}
+			indirectKeyDown = indirectKey;
+
+			// Toggle between packed and float vertices for chunk meshes (V); float meshes are not stored in the arena
+			boolean vertexFormatKey = Input.isKeyDown(GLFW.GLFW_KEY_V);
+			if (vertexFormatKey && !vertexFormatKeyDown) {
+				ChunkMesher.setVertexFormat(ChunkMesher.getVertexFormat() == VertexFormat.PACKED ? VertexFormat.FLOAT : VertexFormat.PACKED);
+				world.markAllDirty();
+			}
+			vertexFormatKeyDown = vertexFormatKey;
+
+			// Toggle the levels of detail of distant chunks (L)
+			boolean lodKey = Input.isKeyDown(GLFW.GLFW_KEY_L);
+			if (lodKey && !lodKeyDown) {
+				world.setLodEnabled(!world.isLodEnabled());
+			}
+			lodKeyDown = lodKey;
+
 			// Lock mouse input when left button is pressed
 			if (Input.isButtonDown(GLFW.GLFW_MOUSE_BUTTON_LEFT)) {
 				window.mouseState(true);
@@ -87,28 +236,46 @@ public class Main implements Runnable {
 	}
 
 	/**
-	 * Updates the chunk, camera, and input handling.
+	 * Uploads finished chunk meshes, then updates the world, camera, and input handling.
 	 */
 	private void update() {
-		chunk1.update();
+		uploadQueue.process();
+		world.update(camera);
 		window.update();
 		camera.update();
+		scheduler.setFocus(camera.getPosition());
 	}
 
 	/**
-	 * Renders the chunk and swaps the window buffers.
+	 * Renders the world and swaps the window buffers.
 	 */
 	private void render() {
-		chunk1.render(renderer, camera);
+		world.render(renderer, camera);
 		window.swapBuffers();
 	}
 
 	/**
-	 * Frees up resources (window and shader) before exiting.
+	 * Saves the world, stops the chunk workers and frees up resources (chunk and block meshes, block textures,
+	 * mesh arena, camera uniforms, window and shaders) before exiting. The world is closed first so that no worker is interrupted while
+	 * writing a region file. The statistics of the chunk codecs are printed once the world is saved.
 	 */
 	private void close() {
+		world.destroy();
+		String codecStats = ChunkCodecs.getStats();
+		if (!codecStats.isEmpty()) {
+			System.out.println(codecStats);
+		}
+		scheduler.shutdown();
+		Blocks.destroyInstanceCube();
+		Blocks.destroyTextures();
+		indirectRenderer.destroy();
+		arena.destroy();
+		cameraUniforms.destroy();
 		window.destroy();
 		shader.destroy();
+		instancedShader.destroy();
+		packedShader.destroy();
+		indirectShader.destroy();
 	}
 
 	/**
@@ -0,0 +1,106 @@
+package fr.florian.engine.graphics;
+
+import fr.florian.engine.maths.Matrix4f;
+import fr.florian.engine.objects.Camera;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The camera matrices of the current frame, computed once per frame and stored in a uniform buffer
+ * shared by every shader. Shaders read them from a {@code std140} block bound to {@link #BINDING}:
+ *
+ * <pre>
+ * layout(std140, row_major, binding = 0) uniform Camera {
+ *     mat4 view;
+ *     mat4 projection;
+ *     mat4 viewProjection;
+ * };
+ * </pre>
+ *
+ * Matrices are uploaded as stored by {@link Matrix4f}, hence the {@code row_major} qualifier.
+ * Must be used from the render thread.
+ */
+public class CameraUniforms {
+
+	/** Uniform buffer binding point of the camera block. */
+	public static final int BINDING = 0;
+
+	/** Number of floats of one matrix. */
+	private static final int MATRIX_FLOATS = Matrix4f.SIZE * Matrix4f.SIZE;
+
+	/** Size of the block in bytes: three matrices, without padding in std140. */
+	private static final int BLOCK_SIZE = 3 * MATRIX_FLOATS * Float.BYTES;
+
+	/** OpenGL ID of the uniform buffer. */
+	private int ubo;
+
+	/** Buffer reused to upload the block. */
+	private FloatBuffer data;
+
+	/** View matrix of the current frame, overwritten each frame. */
+	private final Matrix4f view = Matrix4f.identity();
+
+	/** Projection matrix of the current frame. */
+	private Matrix4f projection = Matrix4f.identity();
+
+	/** Combined projection and view matrix of the current frame, overwritten each frame. */
+	private final Matrix4f viewProjection = Matrix4f.identity();
+
+	/**
+	 * Creates the uniform buffer and binds it to {@link #BINDING}.
+	 */
+	public void create() {
+		ubo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+		GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, BLOCK_SIZE, GL15.GL_DYNAMIC_DRAW);
+		GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+		GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, BINDING, ubo);
+		data = MemoryUtil.memAllocFloat(3 * MATRIX_FLOATS);
+	}
+
+	/**
+	 * Computes the matrices of a new frame and uploads them.
+	 *
+	 * @param camera     The active camera.
+	 * @param projection The projection matrix of the window.
+	 */
+	public void update(Camera camera, Matrix4f projection) {
+		Matrix4f.view(camera.getPosition(), camera.getRotation(), view);
+		this.projection = projection;
+		// mul(a, b, dest) computes b * a
+		Matrix4f.mul(view, projection, viewProjection);
+
+		data.clear();
+		data.put(view.getAll()).put(projection.getAll()).put(viewProjection.getAll()).flip();
+		GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+		GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+		GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+	}
+
+	/**
+	 * Deletes the uniform buffer.
+	 */
+	public void destroy() {
+		GL15.glDeleteBuffers(ubo);
+		MemoryUtil.memFree(data);
+	}
+
+	/** @return The view matrix of the current frame. */
+	public Matrix4f getView() {
+		return view;
+	}
+
+	/** @return The projection matrix of the current frame. */
+	public Matrix4f getProjection() {
+		return projection;
+	}
+
+	/** @return The combined projection and view matrix of the current frame. */
+	public Matrix4f getViewProjection() {
+		return viewProjection;
+	}
+}
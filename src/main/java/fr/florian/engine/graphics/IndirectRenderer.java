@@ -0,0 +1,206 @@
+package fr.florian.engine.graphics;
+
+import fr.florian.engine.maths.Matrix4f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Draws meshes stored in a {@link MeshArena} with a single {@code glMultiDrawElementsIndirect} call.
+ *
+ * Meshes queued during a frame become draw commands ({@code count, instanceCount, firstIndex, baseVertex,
+ * baseInstance}) in an indirect buffer. Model matrices cannot change between the draws of one call, so
+ * meshes are limited to translations: the translation of each draw is stored in a per-instance vertex
+ * attribute, and the base instance of each command is its draw index, so every draw reads its own
+ * translation. The CPU cost of a frame no longer depends on the number of meshes, beyond filling
+ * these two buffers. Must be used from the render thread.
+ */
+public class IndirectRenderer {
+
+	/** Number of ints per draw command. */
+	private static final int COMMAND_INTS = 5;
+
+	/** Number of floats per draw translation. */
+	private static final int OFFSET_FLOATS = 3;
+
+	/** Shader reading the per-draw translation instead of a model matrix. */
+	private final Shader shader;
+
+	/** Arena holding the drawn meshes. */
+	private final MeshArena arena;
+
+	/** OpenGL ID of the VAO reading the arena and the translations. */
+	private int vao;
+
+	/** Vertex buffer of the arena referenced by the VAO (the arena replaces it when it relocates). */
+	private int boundVbo;
+
+	/** Index buffer of the arena bound in the VAO. */
+	private int boundIbo;
+
+	/** OpenGL ID of the indirect draw command buffer. */
+	private int commandBuffer;
+
+	/** OpenGL ID of the per-draw translation buffer. */
+	private int offsetBuffer;
+
+	/** Draw commands queued for the next call. */
+	private IntBuffer commands;
+
+	/** Translations queued for the next call. */
+	private FloatBuffer offsets;
+
+	/** Number of queued draws. */
+	private int drawCount;
+
+	/** Material shared by the queued draws. */
+	private Material material;
+
+	/** Number of draws issued by the last call. */
+	private int lastDrawCount;
+
+	/**
+	 * Constructs an indirect renderer for the meshes of an arena.
+	 *
+	 * @param shader The indirect shader, decoding the vertex format of the arena and reading translations from attribute 4.
+	 * @param arena  The arena holding the meshes.
+	 */
+	public IndirectRenderer(Shader shader, MeshArena arena) {
+		this.shader = shader;
+		this.arena = arena;
+	}
+
+	/**
+	 * Creates the VAO and buffers. The arena must be created first.
+	 */
+	public void create() {
+		vao = GL30.glGenVertexArrays();
+		GL30.glBindVertexArray(vao);
+
+		// Draw translations (location 4), selected by the base instance of each command
+		offsetBuffer = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, offsetBuffer);
+		GL20.glVertexAttribPointer(4, OFFSET_FLOATS, GL11.GL_FLOAT, false, OFFSET_FLOATS * Float.BYTES, 0);
+		GL33.glVertexAttribDivisor(4, 1);
+		GL20.glEnableVertexAttribArray(4);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		GL30.glBindVertexArray(0);
+		bindArena();
+
+		commandBuffer = GL15.glGenBuffers();
+		commands = MemoryUtil.memAllocInt(256 * COMMAND_INTS);
+		offsets = MemoryUtil.memAllocFloat(256 * OFFSET_FLOATS);
+	}
+
+	/**
+	 * Points the vertex attributes of the VAO at the current vertex buffer of the arena, and binds its
+	 * current index buffer in the VAO. Leaves no VAO bound.
+	 */
+	private void bindArena() {
+		GL30.glBindVertexArray(vao);
+
+		// Arena vertices, in the vertex format of the arena
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, arena.getVBO());
+		arena.getFormat().setupAttributes();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, arena.getIBO());
+		GL30.glBindVertexArray(0);
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		boundVbo = arena.getVBO();
+		boundIbo = arena.getIBO();
+	}
+
+	/**
+	 * Queues a mesh stored in the arena. Meshes with another material than the queued ones flush the queue first.
+	 *
+	 * @param mesh   The mesh, allocated in the arena.
+	 * @param model  The model matrix of the mesh (only its translation is used).
+	 * @param state  The tracked OpenGL state, used if the queue is flushed.
+	 */
+	public void add(Mesh mesh, Matrix4f model, RenderState state) {
+		MeshArena.Allocation allocation = mesh.getAllocation();
+		if (allocation == null || allocation.getArena() != arena) {
+			throw new IllegalArgumentException("Mesh is not stored in the arena of this renderer");
+		}
+		if (material != null && material != mesh.getMaterial()) {
+			flush(state);
+		}
+		material = mesh.getMaterial();
+
+		if (commands.remaining() < COMMAND_INTS) {
+			commands = MemoryUtil.memRealloc(commands, commands.capacity() * 2);
+			offsets = MemoryUtil.memRealloc(offsets, offsets.capacity() * 2);
+		}
+		commands.put(allocation.getIndexCount()).put(1).put(allocation.getFirstIndex())
+				.put(allocation.getBaseVertex()).put(drawCount);
+		offsets.put(model.get(3, 0)).put(model.get(3, 1)).put(model.get(3, 2));
+		drawCount++;
+	}
+
+	/**
+	 * Draws every queued mesh in a single call and clears the queue.
+	 *
+	 * @param state The tracked OpenGL state.
+	 */
+	public void flush(RenderState state) {
+		lastDrawCount = drawCount;
+		if (drawCount == 0) {
+			return;
+		}
+
+		// Upload this frame's translations and commands, orphaning the previous storage
+		offsets.flip();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, offsetBuffer);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, offsets, GL15.GL_STREAM_DRAW);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		commands.flip();
+		GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+		GL15.glBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, commands, GL15.GL_STREAM_DRAW);
+
+		if (arena.getVBO() != boundVbo || arena.getIBO() != boundIbo) {
+			// The VAO must not be current while it is rebuilt, or the tracked state would be wrong
+			state.bindVertexArray(0);
+			bindArena();
+		}
+		state.bindVertexArray(vao);
+		state.bindTexture(material);
+		state.useShader(shader);
+
+		GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT, 0, drawCount, 0);
+		GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+
+		commands.clear();
+		offsets.clear();
+		drawCount = 0;
+		material = null;
+	}
+
+	/**
+	 * Frees the VAO and buffers. The arena is destroyed separately.
+	 */
+	public void destroy() {
+		GL15.glDeleteBuffers(commandBuffer);
+		GL15.glDeleteBuffers(offsetBuffer);
+		GL30.glDeleteVertexArrays(vao);
+		MemoryUtil.memFree(commands);
+		MemoryUtil.memFree(offsets);
+	}
+
+	/** @return The arena holding the drawn meshes. */
+	public MeshArena getArena() {
+		return arena;
+	}
+
+	/** @return The number of meshes drawn by the last call. */
+	public int getLastDrawCount() {
+		return lastDrawCount;
+	}
+}
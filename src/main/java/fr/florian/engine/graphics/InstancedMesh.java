@@ -0,0 +1,142 @@
+package fr.florian.engine.graphics;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * A mesh drawing many copies of a shared shape in a single instanced draw call.
+ * The shape (e.g. a unit cube) is uploaded once and referenced by every instanced mesh; each instanced mesh
+ * only owns a buffer of per-instance data ({@code x, y, z} offset, then one texture layer per face of the
+ * shape, in {@link fr.florian.engine.objects.BlockFace} order). The layer attribute of the shape vertices
+ * holds the index of their face, used by the instanced shader to pick the layer of the instance.
+ */
+public class InstancedMesh extends Mesh {
+
+	/** Number of floats per instance: offset (3) and texture layers of the six faces (6). */
+	public static final int INSTANCE_FLOATS = 9;
+
+	/** Size in bytes of one instance. */
+	public static final int INSTANCE_STRIDE = INSTANCE_FLOATS * Float.BYTES;
+
+	/** Shared shape drawn for every instance, created on the GPU before this mesh. */
+	private final Mesh shape;
+
+	/** Per-instance data. */
+	private float[] instanceData;
+
+	/** OpenGL ID of the Vertex Array Object combining the shape and instance buffers. */
+	private int vao;
+
+	/** OpenGL ID of the instance buffer. */
+	private int instanceVbo;
+
+	/**
+	 * Constructs an instanced mesh.
+	 *
+	 * @param shape        The shared shape, whose GPU buffers must be created before this mesh.
+	 * @param instanceData The per-instance data ({@link #INSTANCE_FLOATS} floats per instance).
+	 * @param material     The material used for rendering the instances.
+	 */
+	public InstancedMesh(Mesh shape, float[] instanceData, Material material) {
+		super(shape.getVertexData(), shape.getIndices(), material);
+		this.shape = shape;
+		this.instanceData = instanceData;
+	}
+
+	/**
+	 * Creates the VAO and uploads the instance data, reusing the vertex and index buffers of the shape.
+	 */
+	@Override
+	public void create() {
+		vao = GL30.glGenVertexArrays();
+		GL30.glBindVertexArray(vao);
+
+		// Shape vertices: positions (location 0), texture coordinates (location 2) and face indices (location 3)
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, shape.getVBO());
+		VertexFormat.FLOAT.setupAttributes();
+
+		// Instances: offset (location 4) and face layers (locations 5 and 6), advanced once per instance
+		FloatBuffer instanceBuffer = MemoryUtil.memAllocFloat(instanceData.length);
+		instanceBuffer.put(instanceData).flip();
+		instanceVbo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, instanceBuffer, GL15.GL_STATIC_DRAW);
+		MemoryUtil.memFree(instanceBuffer);
+		for (int i = 0; i < 3; i++) {
+			GL20.glVertexAttribPointer(4 + i, 3, GL11.GL_FLOAT, false, INSTANCE_STRIDE, (long) i * 3 * Float.BYTES);
+			GL33.glVertexAttribDivisor(4 + i, 1);
+			GL20.glEnableVertexAttribArray(4 + i);
+		}
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+		// The shape's index buffer stays bound in the VAO
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, shape.getIBO());
+		GL30.glBindVertexArray(0);
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Instanced meshes cannot be drawn indirectly: creates the mesh with its own buffers instead.
+	 *
+	 * @param arena Ignored.
+	 */
+	@Override
+	public void create(MeshArena arena) {
+		create();
+	}
+
+	/**
+	 * Frees the instance buffer and VAO. The shared shape is left untouched.
+	 */
+	@Override
+	public void destroy() {
+		GL15.glDeleteBuffers(instanceVbo);
+		GL30.glDeleteVertexArrays(vao);
+	}
+
+	/** @return The number of instances. */
+	public int getInstanceCount() {
+		return instanceData.length / INSTANCE_FLOATS;
+	}
+
+	/** @return The per-instance data. */
+	public float[] getInstanceData() {
+		return instanceData;
+	}
+
+	/** @return The number of vertices drawn for all instances. */
+	@Override
+	public int getVertexCount() {
+		return getInstanceCount() * shape.getVertexCount();
+	}
+
+	/** @return The size of the instance data, in bytes (the shape is shared). */
+	@Override
+	public long getSizeInBytes() {
+		return (long) instanceData.length * Float.BYTES;
+	}
+
+	/** @return The VAO ID. */
+	@Override
+	public int getVAO() {
+		return vao;
+	}
+
+	/** @return The instance buffer ID. */
+	@Override
+	public int getVBO() {
+		return instanceVbo;
+	}
+
+	/** @return The index buffer ID of the shared shape. */
+	@Override
+	public int getIBO() {
+		return shape.getIBO();
+	}
+}
@@ -3,20 +3,34 @@ package fr.florian.engine.graphics;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
 import org.lwjgl.system.MemoryUtil;
 
 /**
  * Represents a 3D mesh made up of vertices, indices, and a texture material.
- * Handles GPU resource allocation (VAO, VBOs, IBO) and buffer uploads.
+ * Vertex data is stored interleaved ({@code x, y, z, u, v, layer} per vertex) in a single buffer, as floats
+ * or, for block-aligned geometry, packed into ints (see {@link VertexFormat}).
+ * The layer selects the image of the array texture sampled by the material.
+ * Handles GPU resource allocation (VAO, VBO, IBO) and buffer uploads, or alternatively
+ * stores its data in a shared {@link MeshArena} to be drawn by an {@link IndirectRenderer}.
  */
 public class Mesh {
 
-	/** List of vertices composing the geometry. */
-	private Vertex[] vertices;
+	/** Number of floats per interleaved vertex: position (3), texture coordinates (2) and texture layer (1). */
+	public static final int VERTEX_FLOATS = 6;
+
+	/** Size in bytes of one interleaved vertex. */
+	public static final int VERTEX_STRIDE = VERTEX_FLOATS * Float.BYTES;
+
+	/** Layout of the vertex data. */
+	private final VertexFormat format;
+
+	/** Interleaved vertex data composing the geometry, null for packed meshes. */
+	private float[] vertexData;
+
+	/** Packed vertex data composing the geometry ({@link VertexFormat#PACKED_INTS} ints per vertex), null for float meshes. */
+	private int[] packedVertexData;
 
 	/** Index data used to define the mesh's triangles. */
 	private int[] indices;
@@ -27,17 +41,14 @@ public class Mesh {
 	/** OpenGL ID of the Vertex Array Object (VAO). */
 	private int vao;
 
-	/** OpenGL ID of the position buffer (VBO). */
-	private int pbo;
-
-	/** OpenGL ID of the (optional) color buffer. */
-	private int cbo;
+	/** OpenGL ID of the interleaved vertex buffer (VBO). */
+	private int vbo;
 
 	/** OpenGL ID of the index buffer (IBO / EBO). */
 	private int ibo;
 
-	/** OpenGL ID of the texture coordinates buffer (UVs). */
-	private int tbo;
+	/** Range of the shared arena holding the mesh data, or null if the mesh has its own buffers. */
+	private MeshArena.Allocation allocation;
 
 	/**
 	 * Constructs a new Mesh with the given vertex data, indices, and material.
@@ -47,85 +58,156 @@ public class Mesh {
 	 * @param material The material used for rendering the mesh.
 	 */
 	public Mesh(Vertex[] vertices, int[] indices, Material material) {
-		this.vertices = vertices;
+		this(interleave(vertices), indices, material);
+	}
+
+	/**
+	 * Constructs a new Mesh from interleaved vertex data.
+	 *
+	 * @param vertexData The interleaved vertex data ({@link #VERTEX_FLOATS} floats per vertex).
+	 * @param indices The index array defining triangles.
+	 * @param material The material used for rendering the mesh.
+	 */
+	public Mesh(float[] vertexData, int[] indices, Material material) {
+		this.format = VertexFormat.FLOAT;
+		this.vertexData = vertexData;
 		this.indices = indices;
 		this.material = material;
 	}
 
 	/**
-	 * Creates the OpenGL VAO, VBOs and IBO, and uploads vertex/index data to GPU memory.
+	 * Constructs a new Mesh from {@link VertexFormat#PACKED packed} vertex data.
+	 *
+	 * @param packedVertexData The packed vertex data ({@link VertexFormat#PACKED_INTS} ints per vertex).
+	 * @param indices The index array defining triangles.
+	 * @param material The material used for rendering the mesh.
 	 */
-	public void create() {
-		System.out.println("Creating Mesh on Thread: " + Thread.currentThread().getName());
+	public Mesh(int[] packedVertexData, int[] indices, Material material) {
+		this.format = VertexFormat.PACKED;
+		this.packedVertexData = packedVertexData;
+		this.indices = indices;
+		this.material = material;
+	}
 
-		material.create();
+	/**
+	 * Converts vertex objects to the interleaved layout, using texture layer 0.
+	 */
+	private static float[] interleave(Vertex[] vertices) {
+		float[] data = new float[vertices.length * VERTEX_FLOATS];
+		for (int i = 0; i < vertices.length; i++) {
+			int offset = i * VERTEX_FLOATS;
+			data[offset]     = vertices[i].getPosition().getX();
+			data[offset + 1] = vertices[i].getPosition().getY();
+			data[offset + 2] = vertices[i].getPosition().getZ();
+			data[offset + 3] = vertices[i].getTextureCoord().getX();
+			data[offset + 4] = vertices[i].getTextureCoord().getY();
+			data[offset + 5] = 0;
+		}
+		return data;
+	}
 
+	/**
+	 * Creates the OpenGL VAO, VBO and IBO, and uploads vertex/index data to GPU memory.
+	 */
+	public void create() {
 		vao = GL30.glGenVertexArrays();
 		GL30.glBindVertexArray(vao);
 
-		// Upload position data
-		FloatBuffer positionBuffer = MemoryUtil.memAllocFloat(vertices.length * 3);
-		float[] positionData = new float[vertices.length * 3];
-		for (int i = 0; i < vertices.length; i++) {
-			positionData[i * 3]     = vertices[i].getPosition().getX();
-			positionData[i * 3 + 1] = vertices[i].getPosition().getY();
-			positionData[i * 3 + 2] = vertices[i].getPosition().getZ();
-		}
-		positionBuffer.put(positionData).flip();
-		pbo = storeData(positionBuffer, 0, 3);
-
-		// Texture coordinates (UVs)
-		FloatBuffer textureBuffer = MemoryUtil.memAllocFloat(vertices.length * 2);
-		float[] textureData = new float[vertices.length * 2];
-		for (int i = 0; i < vertices.length; i++) {
-			textureData[i * 2]     = vertices[i].getTextureCoord().getX();
-			textureData[i * 2 + 1] = vertices[i].getTextureCoord().getY();
-		}
-		textureBuffer.put(textureData).flip();
-		tbo = storeData(textureBuffer, 2, 2);
+		// Upload interleaved vertex data
+		vbo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) getVertexCount() * format.getStride(), GL15.GL_STATIC_DRAW);
+		uploadVertices(GL15.GL_ARRAY_BUFFER, 0);
+		format.setupAttributes();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
 
-		// Upload indices
+		// Upload indices; the index buffer stays bound in the VAO, so drawing only needs the VAO
 		IntBuffer indicesBuffer = MemoryUtil.memAllocInt(indices.length);
 		indicesBuffer.put(indices).flip();
 		ibo = GL15.glGenBuffers();
 		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
 		GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL15.GL_STATIC_DRAW);
+		MemoryUtil.memFree(indicesBuffer);
+
+		GL30.glBindVertexArray(0);
 		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
 	}
 
 	/**
-	 * Stores a float buffer in a VBO and binds it to the specified attribute index.
+	 * Uploads the vertex data into the buffer bound to a target, at the given byte offset.
 	 *
-	 * @param buffer The buffer containing vertex attribute data.
-	 * @param index The location index in the shader (layout = index).
-	 * @param size The number of components per vertex (e.g., 3 for vec3).
-	 * @return The OpenGL buffer ID.
+	 * @param target The buffer target.
+	 * @param offset The offset in bytes.
 	 */
-	private int storeData(FloatBuffer buffer, int index, int size) {
-		int bufferID = GL15.glGenBuffers();
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferID);
-		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
-		GL20.glVertexAttribPointer(index, size, GL11.GL_FLOAT, false, 0, 0);
-		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-		return bufferID;
+	void uploadVertices(int target, long offset) {
+		if (format == VertexFormat.PACKED) {
+			IntBuffer vertexBuffer = MemoryUtil.memAllocInt(packedVertexData.length);
+			vertexBuffer.put(packedVertexData).flip();
+			GL15.glBufferSubData(target, offset, vertexBuffer);
+			MemoryUtil.memFree(vertexBuffer);
+		} else {
+			FloatBuffer vertexBuffer = MemoryUtil.memAllocFloat(vertexData.length);
+			vertexBuffer.put(vertexData).flip();
+			GL15.glBufferSubData(target, offset, vertexBuffer);
+			MemoryUtil.memFree(vertexBuffer);
+		}
 	}
 
 	/**
-	 * Frees all GPU resources associated with this mesh (VBOs, VAO, material).
+	 * Uploads the vertex and index data into a shared arena instead of buffers of its own.
+	 * The mesh can then only be drawn by an {@link IndirectRenderer} using this arena.
+	 * Meshes whose vertex format differs from the arena's get their own buffers instead.
+	 *
+	 * @param arena The arena receiving the data.
+	 */
+	public void create(MeshArena arena) {
+		if (arena.getFormat() != format) {
+			create();
+			return;
+		}
+		allocation = arena.allocate(this);
+	}
+
+	/**
+	 * Frees all GPU resources associated with this mesh (VBO, IBO, VAO or arena range).
 	 */
 	public void destroy() {
-		GL15.glDeleteBuffers(pbo);
-		GL15.glDeleteBuffers(cbo);  // Not used, but declared for potential future use
+		if (allocation != null) {
+			allocation.free();
+			allocation = null;
+			return;
+		}
+
+		GL15.glDeleteBuffers(vbo);
 		GL15.glDeleteBuffers(ibo);
-		GL15.glDeleteBuffers(tbo);
 
 		GL30.glDeleteVertexArrays(vao);
-		material.destroy();
 	}
 
-	/** @return The vertex array. */
-	public Vertex[] getVertices() {
-		return vertices;
+	/** @return The layout of the vertex data. */
+	public VertexFormat getFormat() {
+		return format;
+	}
+
+	/** @return The interleaved vertex data, or null if the mesh is packed. */
+	public float[] getVertexData() {
+		return vertexData;
+	}
+
+	/** @return The packed vertex data, or null if the mesh uses floats. */
+	public int[] getPackedVertexData() {
+		return packedVertexData;
+	}
+
+	/** @return The number of vertices. */
+	public int getVertexCount() {
+		return format == VertexFormat.PACKED ? packedVertexData.length / VertexFormat.PACKED_INTS
+				: vertexData.length / VERTEX_FLOATS;
+	}
+
+	/** @return The size of the vertex and index data, in bytes. */
+	public long getSizeInBytes() {
+		return (long) getVertexCount() * format.getStride() + (long) indices.length * Integer.BYTES;
 	}
 
 	/** @return The index array. */
@@ -133,24 +215,19 @@ public class Mesh {
 		return indices;
 	}
 
+	/** @return The range of the shared arena holding the mesh, or null if the mesh has its own buffers. */
+	public MeshArena.Allocation getAllocation() {
+		return allocation;
+	}
+
 	/** @return The VAO ID. */
 	public int getVAO() {
 		return vao;
 	}
 
-	/** @return The Position Buffer Object ID. */
-	public int getPBO() {
-		return pbo;
-	}
-
-	/** @return The Color Buffer Object ID (not used currently). */
-	public int getCBO() {
-		return cbo;
-	}
-
-	/** @return The Texture Buffer Object ID. */
-	public int getTbo() {
-		return tbo;
+	/** @return The Vertex Buffer Object ID. */
+	public int getVBO() {
+		return vbo;
 	}
 
 	/** @return The Index Buffer Object ID. */
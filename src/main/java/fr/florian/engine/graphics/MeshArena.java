@@ -0,0 +1,313 @@
+package fr.florian.engine.graphics;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * One large vertex buffer and one large index buffer shared by many meshes, so that they can all be drawn
+ * from a single VAO by the {@link IndirectRenderer}, and so that creating or destroying a mesh only
+ * allocates or frees ranges instead of creating or deleting OpenGL objects.
+ *
+ * Vertex and index ranges are handed out by first-fit {@link RangeAllocator free lists} (indices stay
+ * relative to the first vertex of their mesh, which is applied as the base vertex of its draw command).
+ * When no free range is large enough, the live ranges are copied on the GPU, packed, into new buffers:
+ * this removes the fragmentation, and the buffers are doubled at the same time if the live meshes would
+ * fill more than three quarters of them. Users of the buffers must check {@link #getVBO()} and
+ * {@link #getIBO()} again after allocating. All meshes of an arena share its {@link VertexFormat}.
+ * All methods must be called from the render thread.
+ */
+public class MeshArena {
+
+	/**
+	 * The ranges of the arena holding one mesh.
+	 */
+	public final class Allocation {
+
+		/** Number of vertices of the mesh. */
+		private final int vertexCount;
+
+		/** Number of indices of the mesh. */
+		private final int indexCount;
+
+		/** Index of the first vertex of the mesh in the vertex buffer. */
+		private int baseVertex;
+
+		/** Index of the first index of the mesh in the index buffer. */
+		private int firstIndex;
+
+		private Allocation(int vertexCount, int indexCount) {
+			this.vertexCount = vertexCount;
+			this.indexCount = indexCount;
+		}
+
+		/** @return Index of the first vertex of the mesh in the vertex buffer. */
+		public int getBaseVertex() {
+			return baseVertex;
+		}
+
+		/** @return Index of the first index of the mesh in the index buffer. */
+		public int getFirstIndex() {
+			return firstIndex;
+		}
+
+		/** @return The number of indices of the mesh. */
+		public int getIndexCount() {
+			return indexCount;
+		}
+
+		/** @return The arena holding the mesh. */
+		public MeshArena getArena() {
+			return MeshArena.this;
+		}
+
+		/**
+		 * Releases the ranges, which can be reused immediately.
+		 */
+		public void free() {
+			if (allocations.remove(this)) {
+				vertices.free(baseVertex, vertexCount);
+				indices.free(firstIndex, indexCount);
+			}
+		}
+	}
+
+	/** Layout of the vertices of every mesh of the arena. */
+	private final VertexFormat format;
+
+	/** Live allocations. */
+	private final Set<Allocation> allocations = new LinkedHashSet<>();
+
+	/** Ranges of the vertex buffer, in vertices. */
+	private final RangeAllocator vertices;
+
+	/** Ranges of the index buffer, in indices. */
+	private final RangeAllocator indices;
+
+	/** OpenGL ID of the vertex buffer. */
+	private int vbo;
+
+	/** OpenGL ID of the index buffer. */
+	private int ibo;
+
+	/** Number of times the live ranges were packed into new buffers. */
+	private int relocationCount;
+
+	/**
+	 * Creates an arena with the given initial capacity, without allocating GPU memory.
+	 *
+	 * @param format         The vertex format of the meshes of the arena.
+	 * @param vertexCapacity Initial capacity of the vertex buffer, in vertices.
+	 * @param indexCapacity  Initial capacity of the index buffer, in indices.
+	 */
+	public MeshArena(VertexFormat format, int vertexCapacity, int indexCapacity) {
+		this.format = format;
+		this.vertices = new RangeAllocator(vertexCapacity);
+		this.indices = new RangeAllocator(indexCapacity);
+	}
+
+	/**
+	 * Creates the vertex and index buffers on the GPU.
+	 */
+	public void create() {
+		vbo = createBuffer(GL15.GL_ARRAY_BUFFER, (long) vertices.getCapacity() * format.getStride());
+		ibo = createBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) indices.getCapacity() * Integer.BYTES);
+	}
+
+	/**
+	 * Allocates ranges for a mesh and uploads its data, packing or growing the arena first if no free range fits.
+	 *
+	 * @param mesh The mesh, with its CPU-side data in the vertex format of the arena.
+	 * @return The ranges of the arena holding the mesh.
+	 */
+	public Allocation allocate(Mesh mesh) {
+		if (mesh.getFormat() != format) {
+			throw new IllegalArgumentException("Mesh vertex format " + mesh.getFormat() + " does not match arena format " + format);
+		}
+		int[] indexData = mesh.getIndices();
+		Allocation allocation = new Allocation(mesh.getVertexCount(), indexData.length);
+
+		if (!reserve(allocation)) {
+			relocate(allocation.vertexCount, allocation.indexCount);
+			if (!reserve(allocation)) {
+				throw new IllegalStateException("Mesh arena cannot fit " + allocation.vertexCount + " vertices and "
+						+ allocation.indexCount + " indices after relocation");
+			}
+		}
+		allocations.add(allocation);
+
+		// Unbind any VAO so that binding the index buffer does not change its state
+		GL30.glBindVertexArray(0);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+		mesh.uploadVertices(GL15.GL_ARRAY_BUFFER, (long) allocation.baseVertex * format.getStride());
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+		IntBuffer indexBuffer = MemoryUtil.memAllocInt(indexData.length);
+		indexBuffer.put(indexData).flip();
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
+		GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) allocation.firstIndex * Integer.BYTES, indexBuffer);
+		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+		MemoryUtil.memFree(indexBuffer);
+		return allocation;
+	}
+
+	/**
+	 * Reserves the vertex and index ranges of an allocation, or neither.
+	 */
+	private boolean reserve(Allocation allocation) {
+		int baseVertex = vertices.allocate(allocation.vertexCount);
+		if (baseVertex < 0) {
+			return false;
+		}
+		int firstIndex = indices.allocate(allocation.indexCount);
+		if (firstIndex < 0) {
+			vertices.free(baseVertex, allocation.vertexCount);
+			return false;
+		}
+		allocation.baseVertex = baseVertex;
+		allocation.firstIndex = firstIndex;
+		return true;
+	}
+
+	/**
+	 * Copies the live ranges, packed, into new buffers, doubled as long as the live ranges plus the requested
+	 * space would fill more than three quarters of them. The copies are done by the GPU.
+	 */
+	private void relocate(int extraVertices, int extraIndices) {
+		int vertexCapacity = vertices.getCapacity();
+		while ((long) vertices.getUsed() + extraVertices > vertexCapacity * 3L / 4) {
+			vertexCapacity = Math.multiplyExact(vertexCapacity, 2);
+		}
+		int indexCapacity = indices.getCapacity();
+		while ((long) indices.getUsed() + extraIndices > indexCapacity * 3L / 4) {
+			indexCapacity = Math.multiplyExact(indexCapacity, 2);
+		}
+
+		int newVbo = createBuffer(GL15.GL_ARRAY_BUFFER, (long) vertexCapacity * format.getStride());
+		int newIbo = createBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) indexCapacity * Integer.BYTES);
+
+		// Pack the vertex ranges, in their current order
+		List<Allocation> live = new ArrayList<>(allocations);
+		live.sort(Comparator.comparingInt(Allocation::getBaseVertex));
+		GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, vbo);
+		GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, newVbo);
+		int vertexTop = 0;
+		for (Allocation allocation : live) {
+			GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER,
+					(long) allocation.baseVertex * format.getStride(), (long) vertexTop * format.getStride(),
+					(long) allocation.vertexCount * format.getStride());
+			allocation.baseVertex = vertexTop;
+			vertexTop += allocation.vertexCount;
+		}
+
+		// Pack the index ranges (indices are relative to the base vertex, so they are copied as is)
+		live.sort(Comparator.comparingInt(Allocation::getFirstIndex));
+		GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, ibo);
+		GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, newIbo);
+		int indexTop = 0;
+		for (Allocation allocation : live) {
+			GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER,
+					(long) allocation.firstIndex * Integer.BYTES, (long) indexTop * Integer.BYTES,
+					(long) allocation.indexCount * Integer.BYTES);
+			allocation.firstIndex = indexTop;
+			indexTop += allocation.indexCount;
+		}
+		GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+		GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+
+		GL15.glDeleteBuffers(vbo);
+		GL15.glDeleteBuffers(ibo);
+		vbo = newVbo;
+		ibo = newIbo;
+		vertices.reset(vertexCapacity, vertexTop);
+		indices.reset(indexCapacity, indexTop);
+		relocationCount++;
+	}
+
+	/**
+	 * Creates a buffer with uninitialized storage of the given size.
+	 */
+	private static int createBuffer(int target, long size) {
+		// Unbind any VAO so that binding the index buffer does not change its state
+		GL30.glBindVertexArray(0);
+		int buffer = GL15.glGenBuffers();
+		GL15.glBindBuffer(target, buffer);
+		GL15.glBufferData(target, size, GL15.GL_DYNAMIC_DRAW);
+		GL15.glBindBuffer(target, 0);
+		return buffer;
+	}
+
+	/**
+	 * Deletes the buffers. The meshes still allocated must not be drawn anymore.
+	 */
+	public void destroy() {
+		GL15.glDeleteBuffers(vbo);
+		GL15.glDeleteBuffers(ibo);
+		allocations.clear();
+		vertices.reset(vertices.getCapacity(), 0);
+		indices.reset(indices.getCapacity(), 0);
+	}
+
+	/** @return The vertex format of the meshes of the arena. */
+	public VertexFormat getFormat() {
+		return format;
+	}
+
+	/** @return The vertex buffer ID (changes when the arena is relocated). */
+	public int getVBO() {
+		return vbo;
+	}
+
+	/** @return The index buffer ID (changes when the arena is relocated). */
+	public int getIBO() {
+		return ibo;
+	}
+
+	/** @return The number of live meshes. */
+	public int getAllocationCount() {
+		return allocations.size();
+	}
+
+	/** @return The size of the live meshes, in bytes. */
+	public long getUsedBytes() {
+		return (long) vertices.getUsed() * format.getStride() + (long) indices.getUsed() * Integer.BYTES;
+	}
+
+	/** @return The size of both buffers, in bytes. */
+	public long getCapacityBytes() {
+		return (long) vertices.getCapacity() * format.getStride() + (long) indices.getCapacity() * Integer.BYTES;
+	}
+
+	/** @return The fraction of both buffers used by live meshes. */
+	public double getUtilisation() {
+		return (double) getUsedBytes() / getCapacityBytes();
+	}
+
+	/**
+	 * Returns how scattered the free space of the vertex buffer is (the index buffer follows the same pattern):
+	 * 0 when it is a single range, close to 1 when it is split into many small ranges.
+	 *
+	 * @return The fragmentation, between 0 and 1.
+	 */
+	public double getFragmentation() {
+		return vertices.getFragmentation();
+	}
+
+	/** @return The number of free ranges of the vertex buffer. */
+	public int getFreeRangeCount() {
+		return vertices.getFreeRangeCount();
+	}
+
+	/** @return The number of times the live meshes were packed into new buffers. */
+	public int getRelocationCount() {
+		return relocationCount;
+	}
+}
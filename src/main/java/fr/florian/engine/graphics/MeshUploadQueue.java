@@ -0,0 +1,117 @@
+package fr.florian.engine.graphics;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hands meshes built on worker threads over to the render thread.
+ * Each frame, {@link #process()} uploads queued meshes to the GPU until the time or byte budget is spent,
+ * so a burst of finished chunks is spread over several frames instead of causing a hitch.
+ */
+public class MeshUploadQueue {
+
+    /**
+     * A group of meshes uploaded together, with the callback receiving them once on the GPU.
+     */
+    private record Upload(List<Mesh> meshes, Consumer<List<Mesh>> onUploaded) {
+    }
+
+    /** Meshes waiting to be uploaded. */
+    private final Queue<Upload> pending = new ConcurrentLinkedQueue<>();
+
+    /** Maximum time spent uploading per frame, in nanoseconds. */
+    private long timeBudgetNanos;
+
+    /** Maximum amount of vertex and index data uploaded per frame, in bytes. */
+    private long byteBudget;
+
+    /** Arena receiving the uploaded meshes, or null to give each mesh its own buffers. */
+    private MeshArena arena;
+
+    /**
+     * Creates an upload queue with the given per-frame budgets.
+     * At least one group of meshes is uploaded per frame, whatever the budget.
+     *
+     * @param timeBudgetNanos Maximum upload time per frame, in nanoseconds.
+     * @param byteBudget      Maximum uploaded data per frame, in bytes.
+     */
+    public MeshUploadQueue(long timeBudgetNanos, long byteBudget) {
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Queues meshes for upload. Can be called from any thread.
+     *
+     * @param meshes     The meshes to upload (CPU-side data only), possibly with null entries.
+     * @param onUploaded Callback invoked on the render thread once all meshes are created on the GPU.
+     */
+    public void submit(List<Mesh> meshes, Consumer<List<Mesh>> onUploaded) {
+        pending.add(new Upload(meshes, onUploaded));
+    }
+
+    /**
+     * Uploads queued meshes within the frame budget. Must be called from the render thread.
+     */
+    public void process() {
+        long start = System.nanoTime();
+        long uploadedBytes = 0;
+        boolean first = true;
+
+        Upload upload;
+        while ((first || (uploadedBytes < byteBudget && System.nanoTime() - start < timeBudgetNanos))
+                && (upload = pending.poll()) != null) {
+            for (Mesh mesh : upload.meshes()) {
+                if (mesh != null) {
+                    if (arena != null) {
+                        mesh.create(arena);
+                    } else {
+                        mesh.create();
+                    }
+                    uploadedBytes += mesh.getSizeInBytes();
+                }
+            }
+            upload.onUploaded().accept(upload.meshes());
+            first = false;
+        }
+    }
+
+    /** @return The arena receiving the uploaded meshes, or null if each mesh gets its own buffers. */
+    public MeshArena getArena() {
+        return arena;
+    }
+
+    /**
+     * Sets where the next meshes are uploaded. Meshes already uploaded are not moved.
+     *
+     * @param arena The arena receiving the meshes, or null to give each mesh its own buffers.
+     */
+    public void setArena(MeshArena arena) {
+        this.arena = arena;
+    }
+
+    /** @return The number of mesh groups waiting for upload. */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Sets the maximum upload time per frame.
+     *
+     * @param timeBudgetNanos The budget in nanoseconds.
+     */
+    public void setTimeBudget(long timeBudgetNanos) {
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    /**
+     * Sets the maximum amount of data uploaded per frame.
+     *
+     * @param byteBudget The budget in bytes.
+     */
+    public void setByteBudget(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+}
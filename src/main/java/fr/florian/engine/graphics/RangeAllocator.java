@@ -0,0 +1,134 @@
+package fr.florian.engine.graphics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * First-fit free-list allocator of ranges within a buffer of fixed capacity (in arbitrary units).
+ * Freed ranges are merged with their free neighbours, so the free list stays as short as possible.
+ * Used by {@link MeshArena} to sub-allocate its vertex and index buffers.
+ */
+class RangeAllocator {
+
+	/** Free ranges: offset to size, sorted by offset. */
+	private final TreeMap<Integer, Integer> freeRanges = new TreeMap<>();
+
+	/** Total size of the buffer. */
+	private int capacity;
+
+	/** Total size of the allocated ranges. */
+	private int used;
+
+	/**
+	 * Creates an allocator with a single free range covering the buffer.
+	 *
+	 * @param capacity The size of the buffer.
+	 */
+	RangeAllocator(int capacity) {
+		reset(capacity, 0);
+	}
+
+	/**
+	 * Allocates a range in the first free range large enough.
+	 *
+	 * @param size The size of the range.
+	 * @return The offset of the range, or -1 if no free range is large enough.
+	 */
+	int allocate(int size) {
+		if (size == 0) {
+			return 0;
+		}
+		Iterator<Map.Entry<Integer, Integer>> iterator = freeRanges.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Integer, Integer> range = iterator.next();
+			if (range.getValue() < size) {
+				continue;
+			}
+			int offset = range.getKey();
+			int remaining = range.getValue() - size;
+			iterator.remove();
+			if (remaining > 0) {
+				freeRanges.put(offset + size, remaining);
+			}
+			used += size;
+			return offset;
+		}
+		return -1;
+	}
+
+	/**
+	 * Releases a range, merging it with the adjacent free ranges.
+	 *
+	 * @param offset The offset of the range.
+	 * @param size   The size of the range.
+	 */
+	void free(int offset, int size) {
+		if (size == 0) {
+			return;
+		}
+		used -= size;
+
+		Map.Entry<Integer, Integer> previous = freeRanges.lowerEntry(offset);
+		if (previous != null && previous.getKey() + previous.getValue() == offset) {
+			offset = previous.getKey();
+			size += previous.getValue();
+		}
+		Integer nextSize = freeRanges.remove(offset + size);
+		if (nextSize != null) {
+			size += nextSize;
+		}
+		freeRanges.put(offset, size);
+	}
+
+	/**
+	 * Resets the allocator after the buffer was packed: the first {@code used} units are allocated,
+	 * the rest of the buffer is a single free range.
+	 *
+	 * @param capacity The (new) size of the buffer.
+	 * @param used     The size of the packed allocated ranges.
+	 */
+	void reset(int capacity, int used) {
+		this.capacity = capacity;
+		this.used = used;
+		freeRanges.clear();
+		if (used < capacity) {
+			freeRanges.put(used, capacity - used);
+		}
+	}
+
+	/** @return The size of the buffer. */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/** @return The total size of the allocated ranges. */
+	int getUsed() {
+		return used;
+	}
+
+	/** @return The number of free ranges. */
+	int getFreeRangeCount() {
+		return freeRanges.size();
+	}
+
+	/** @return The size of the largest free range. */
+	int getLargestFreeRange() {
+		int largest = 0;
+		for (int size : freeRanges.values()) {
+			largest = Math.max(largest, size);
+		}
+		return largest;
+	}
+
+	/**
+	 * Returns how scattered the free space is: 0 when it is a single range, close to 1 when it is split
+	 * into many small ranges.
+	 *
+	 * @return The fragmentation, between 0 and 1.
+	 */
+	double getFragmentation() {
+		int free = capacity - used;
+		return free == 0 ? 0 : 1 - (double) getLargestFreeRange() / free;
+	}
+}
@@ -0,0 +1,103 @@
+package fr.florian.engine.graphics;
+
+import fr.florian.engine.maths.Matrix4f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL31;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Collects the draws of a frame and issues them sorted by shader, then texture, then VAO, so that each
+ * shader, texture and VAO is bound as few times as possible. Bindings go through a {@link RenderState},
+ * which skips the ones that are already current. Draw items are reused from one frame to the next.
+ * Must be used from the render thread.
+ */
+public class RenderQueue {
+
+	/**
+	 * A queued draw.
+	 */
+	private static final class DrawItem {
+		Shader shader;
+		Mesh mesh;
+		Matrix4f model;
+	}
+
+	/** Sort order of the draws: shader program, then texture, then VAO. */
+	private static final Comparator<DrawItem> ORDER = Comparator
+			.comparingInt((DrawItem item) -> item.shader.getProgramID())
+			.thenComparingInt(item -> item.mesh.getMaterial().getTextureID())
+			.thenComparingInt(item -> item.mesh.getVAO());
+
+	/** Queued draws; only the first {@link #count} are used. */
+	private DrawItem[] items = new DrawItem[256];
+
+	/** Number of queued draws. */
+	private int count;
+
+	/**
+	 * Queues a draw for the next {@link #flush}.
+	 *
+	 * @param shader The shader used to draw the mesh.
+	 * @param mesh   The mesh, with its own VAO.
+	 * @param model  The model matrix (kept by reference until the flush).
+	 */
+	public void add(Shader shader, Mesh mesh, Matrix4f model) {
+		if (count == items.length) {
+			items = Arrays.copyOf(items, count * 2);
+		}
+		DrawItem item = items[count];
+		if (item == null) {
+			item = items[count] = new DrawItem();
+		}
+		item.shader = shader;
+		item.mesh = mesh;
+		item.model = model;
+		count++;
+	}
+
+	/**
+	 * Sorts and draws every queued mesh, then clears the queue.
+	 *
+	 * @param state The tracked OpenGL state.
+	 */
+	public void flush(RenderState state) {
+		Arrays.sort(items, 0, count, ORDER);
+
+		Shader shader = null;
+		int modelLocation = -1;
+		for (int i = 0; i < count; i++) {
+			DrawItem item = items[i];
+			Mesh mesh = item.mesh;
+
+			// Camera matrices come from the camera uniform block: only the model matrix is set per draw
+			state.useShader(item.shader);
+			if (item.shader != shader) {
+				shader = item.shader;
+				modelLocation = shader.getUniformLocation("model");
+			}
+			state.bindTexture(mesh.getMaterial());
+			state.bindVertexArray(mesh.getVAO());
+			shader.setUniform(modelLocation, item.model);
+
+			if (mesh instanceof InstancedMesh instanced) {
+				GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, mesh.getIndices().length, GL11.GL_UNSIGNED_INT, 0,
+						instanced.getInstanceCount());
+			} else {
+				GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndices().length, GL11.GL_UNSIGNED_INT, 0);
+			}
+
+			// Release the references until the item is reused
+			item.shader = null;
+			item.mesh = null;
+			item.model = null;
+		}
+		count = 0;
+	}
+
+	/** @return The number of queued draws. */
+	public int getCount() {
+		return count;
+	}
+}
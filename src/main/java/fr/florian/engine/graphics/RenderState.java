@@ -0,0 +1,101 @@
+package fr.florian.engine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Tracks the OpenGL state bound by the renderers (shader program, texture of unit 0 and VAO) so that
+ * binding an object that is already bound is skipped, and counts the state changes actually issued.
+ * Vertex attributes and index buffers are part of the VAOs, so they never need to change between draws.
+ * Must be used from the render thread.
+ */
+public class RenderState {
+
+	/** Currently bound shader program, 0 if none. */
+	private int program;
+
+	/** Target of the currently bound texture. */
+	private int textureTarget;
+
+	/** Currently bound texture, 0 if none. */
+	private int texture;
+
+	/** Currently bound VAO, 0 if none. */
+	private int vao;
+
+	/** Number of state changes issued since the last {@link #resetStateChangeCount()}. */
+	private int stateChangeCount;
+
+	/**
+	 * Binds a shader program if it is not bound yet.
+	 *
+	 * @param shader The shader.
+	 */
+	public void useShader(Shader shader) {
+		if (shader.getProgramID() == program) {
+			return;
+		}
+		shader.bind();
+		program = shader.getProgramID();
+		stateChangeCount++;
+	}
+
+	/**
+	 * Binds the texture of a material to texture unit 0 if it is not bound yet.
+	 *
+	 * @param material The material.
+	 */
+	public void bindTexture(Material material) {
+		if (material.getTextureID() == texture && material.getTarget() == textureTarget) {
+			return;
+		}
+		GL11.glBindTexture(material.getTarget(), material.getTextureID());
+		textureTarget = material.getTarget();
+		texture = material.getTextureID();
+		stateChangeCount++;
+	}
+
+	/**
+	 * Binds a VAO if it is not bound yet.
+	 *
+	 * @param vao The VAO ID.
+	 */
+	public void bindVertexArray(int vao) {
+		if (vao == this.vao) {
+			return;
+		}
+		GL30.glBindVertexArray(vao);
+		this.vao = vao;
+		stateChangeCount++;
+	}
+
+	/**
+	 * Unbinds everything, so that code outside of the renderers starts from a clean state.
+	 * Texture unit 0 is left active, as assumed by {@link #bindTexture}.
+	 */
+	public void reset() {
+		GL20.glUseProgram(0);
+		GL13.glActiveTexture(GL13.GL_TEXTURE0);
+		if (texture != 0) {
+			GL11.glBindTexture(textureTarget, 0);
+		}
+		GL30.glBindVertexArray(0);
+		program = 0;
+		texture = 0;
+		vao = 0;
+	}
+
+	/** @return The number of state changes issued since the last reset of the counter. */
+	public int getStateChangeCount() {
+		return stateChangeCount;
+	}
+
+	/**
+	 * Resets the state change counter (e.g. at the start of a frame).
+	 */
+	public void resetStateChangeCount() {
+		stateChangeCount = 0;
+	}
+}
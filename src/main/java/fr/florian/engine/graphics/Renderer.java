@@ -4,71 +4,140 @@ import fr.florian.engine.io.Window;
 import fr.florian.engine.objects.Camera;
 import fr.florian.engine.maths.Matrix4f;
 import fr.florian.engine.objects.Entity;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL30;
 
 /**
  * Handles rendering of 3D entities using OpenGL and a provided shader.
- * Responsible for setting up shader uniforms and binding vertex data.
+ * Draws are queued during the frame and issued by {@link #flush}, grouped to bind each shader,
+ * texture and VAO as few times as possible.
  */
 public class Renderer {
 
 	/** Shader used for rendering. */
 	private Shader shader;
 
+	/** Shader used for rendering {@link InstancedMesh instanced meshes}. */
+	private Shader instancedShader;
+
+	/** Shader used for rendering meshes in the {@link VertexFormat#PACKED packed} vertex format. */
+	private Shader packedShader;
+
+	/** Renderer batching the meshes stored in a {@link MeshArena}. */
+	private IndirectRenderer indirectRenderer;
+
 	/** Associated window for accessing the projection matrix. */
 	private Window window;
 
+	/** Camera matrices of the current frame, shared by every shader. */
+	private final CameraUniforms cameraUniforms;
+
+	/** Draws of the meshes with their own buffers, sorted at each flush. */
+	private final RenderQueue queue = new RenderQueue();
+
+	/** OpenGL state bound by the queue and the indirect renderer. */
+	private final RenderState state = new RenderState();
+
+	/** Number of state changes issued by the last flush. */
+	private int lastStateChangeCount;
+
 	/**
-	 * Constructs a new Renderer with the specified window and shader.
+	 * Constructs a new Renderer with the specified window and shaders.
 	 *
-	 * @param window The rendering window.
-	 * @param shader The shader used to draw meshes.
+	 * @param window          The rendering window.
+	 * @param shader          The shader used to draw meshes.
+	 * @param instancedShader  The shader used to draw instanced meshes.
+	 * @param packedShader     The shader used to draw meshes with packed vertices.
+	 * @param indirectRenderer The renderer drawing the meshes stored in its arena.
+	 * @param cameraUniforms   The camera uniform block read by the shaders.
 	 */
-	public Renderer(Window window, Shader shader) {
+	public Renderer(Window window, Shader shader, Shader instancedShader, Shader packedShader,
+			IndirectRenderer indirectRenderer, CameraUniforms cameraUniforms) {
 		this.shader = shader;
+		this.instancedShader = instancedShader;
+		this.packedShader = packedShader;
+		this.indirectRenderer = indirectRenderer;
 		this.window = window;
+		this.cameraUniforms = cameraUniforms;
+	}
+
+	/** @return The projection matrix of the rendering window. */
+	public Matrix4f getProjectionMatrix() {
+		return window.getProjectionMatrix();
+	}
+
+	/**
+	 * Computes and uploads the camera matrices of a new frame. Must be called before rendering its meshes.
+	 *
+	 * @param camera The active camera.
+	 */
+	public void beginFrame(Camera camera) {
+		cameraUniforms.update(camera, window.getProjectionMatrix());
+	}
+
+	/** @return The camera matrices of the current frame. */
+	public CameraUniforms getCameraUniforms() {
+		return cameraUniforms;
 	}
 
 	/**
 	 * Renders a single 3D entity using its mesh, transform, and material.
+	 * Like every mesh, it is queued and drawn by the next {@link #flush}.
 	 *
 	 * @param entity The entity to render (position, rotation, scale, mesh).
-	 * @param camera The active camera used to generate the view matrix.
 	 */
-	public void renderMesh(Entity entity, Camera camera) {
-		// Bind the mesh's Vertex Array Object (VAO)
-		GL30.glBindVertexArray(entity.getMesh().getVAO());
-
-		// Enable vertex attribute arrays: positions (0), texture coords (1), normals (2)
-		GL30.glEnableVertexAttribArray(0);
-		GL30.glEnableVertexAttribArray(1);
-		GL30.glEnableVertexAttribArray(2);
-
-		// Bind index buffer
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, entity.getMesh().getIBO());
-
-		// Bind the mesh's texture to texture unit 0
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL13.glBindTexture(GL11.GL_TEXTURE_2D, entity.getMesh().getMaterial().getTextureID());
-
-		// Activate the shader and upload transformation matrices
-		shader.bind();
-		shader.setUniform("model", Matrix4f.transform(entity.getPosition(), entity.getRotation(), entity.getScale()));
-		shader.setUniform("view", Matrix4f.view(camera.getPosition(), camera.getRotation()));
-		shader.setUniform("projection", window.getProjectionMatrix());
-
-		// Draw the mesh elements using triangles
-		GL11.glDrawElements(GL11.GL_TRIANGLES, entity.getMesh().getIndices().length, GL11.GL_UNSIGNED_INT, 0);
-
-		// Unbind the shader and reset state
-		shader.unbind();
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GL30.glDisableVertexAttribArray(0);
-		GL30.glDisableVertexAttribArray(1);
-		GL30.glDisableVertexAttribArray(2);
-		GL30.glBindVertexArray(0);
+	public void renderMesh(Entity entity) {
+		renderMesh(entity.getMesh(), Matrix4f.transform(entity.getPosition(), entity.getRotation(), entity.getScale()));
+	}
+
+	/**
+	 * Renders a mesh with an explicit model matrix.
+	 * Used for geometry that is not backed by an {@link Entity}, such as chunk blocks.
+	 * The mesh is only queued: meshes with their own buffers go to the {@link RenderQueue}, sorted to minimise
+	 * state changes ({@link InstancedMesh instanced meshes} and packed meshes use their own shaders), and meshes stored in a
+	 * {@link MeshArena} go to the {@link IndirectRenderer}. Everything is drawn by {@link #flush}.
+	 *
+	 * @param mesh  The mesh to render.
+	 * @param model The model (world) transformation matrix, which must not be modified before the flush.
+	 */
+	public void renderMesh(Mesh mesh, Matrix4f model) {
+		if (mesh.getAllocation() != null) {
+			indirectRenderer.add(mesh, model, state);
+		} else {
+			queue.add(shaderFor(mesh), mesh, model);
+		}
+	}
+
+	/**
+	 * Returns the shader able to draw a mesh with its own buffers.
+	 */
+	private Shader shaderFor(Mesh mesh) {
+		if (mesh instanceof InstancedMesh) {
+			return instancedShader;
+		} else if (mesh.getFormat() == VertexFormat.PACKED) {
+			return packedShader;
+		} else {
+			return shader;
+		}
+	}
+
+	/**
+	 * Draws everything queued since the last flush, then unbinds the OpenGL state.
+	 * Must be called once all the meshes of a frame are rendered.
+	 */
+	public void flush() {
+		queue.flush(state);
+		indirectRenderer.flush(state);
+		state.reset();
+		lastStateChangeCount = state.getStateChangeCount();
+		state.resetStateChangeCount();
+	}
+
+	/** @return The number of shader, texture and VAO bindings issued by the last flush. */
+	public int getStateChangeCount() {
+		return lastStateChangeCount;
+	}
+
+	/** @return The renderer drawing the meshes stored in an arena. */
+	public IndirectRenderer getIndirectRenderer() {
+		return indirectRenderer;
 	}
 }
@@ -6,13 +6,22 @@ import fr.florian.engine.maths.Vector2f;
 import fr.florian.engine.maths.Vector3f;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Manages an OpenGL shader program composed of a vertex and fragment shader.
  * Handles compilation, linking, binding, and uniform uploading.
+ *
+ * The locations of the active uniforms are read once after linking. Uniforms set every draw should
+ * be set through their location, looked up once with {@link #getUniformLocation(String)}; the setters
+ * taking a name only add a map lookup. Matrices are uploaded from a buffer reused for every upload.
+ * Setters must be called from the render thread, with the shader bound.
  */
 public class Shader {
 
@@ -31,6 +40,12 @@ public class Shader {
     /** OpenGL ID for the final linked shader program. */
     private int programID;
 
+    /** Locations of the active uniforms, by name. */
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
+
+    /** Buffer reused to upload matrices. */
+    private FloatBuffer matrixBuffer;
+
     /**
      * Loads shader source code from specified files.
      *
@@ -81,49 +96,107 @@ public class Shader {
         if (GL20.glGetProgrami(programID, GL20.GL_VALIDATE_STATUS) == GL11.GL_FALSE) {
             System.err.println("Program Validation: " + GL20.glGetProgramInfoLog(programID));
         }
+
+        readUniformLocations();
+        matrixBuffer = MemoryUtil.memAllocFloat(Matrix4f.SIZE * Matrix4f.SIZE);
+    }
+
+    /**
+     * Fills the location table with the active uniforms of the linked program.
+     * Arrays are reported as {@code name[0]}, and are also registered under their plain name.
+     */
+    private void readUniformLocations() {
+        uniformLocations.clear();
+        int count = GL20.glGetProgrami(programID, GL20.GL_ACTIVE_UNIFORMS);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer size = stack.mallocInt(1);
+            IntBuffer type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                String name = GL20.glGetActiveUniform(programID, i, size, type);
+                int location = GL20.glGetUniformLocation(programID, name);
+                if (location < 0) {
+                    // Uniforms of uniform blocks have no location
+                    continue;
+                }
+                uniformLocations.put(name, location);
+                if (name.endsWith("[0]")) {
+                    uniformLocations.put(name.substring(0, name.length() - 3), location);
+                }
+            }
+        }
     }
 
     /**
-     * Gets the location of a uniform variable in the shader.
+     * Gets the location of a uniform variable in the shader, from the table read at link time.
      *
      * @param name Name of the uniform.
-     * @return The uniform's location ID.
+     * @return The uniform's location ID, or -1 if the program has no such active uniform (uploads to -1 are ignored).
      */
     public int getUniformLocation(String name) {
-        return GL20.glGetUniformLocation(programID, name);
+        Integer location = uniformLocations.get(name);
+        return location != null ? location : -1;
     }
 
     /** Uploads a float uniform to the shader. */
     public void setUniform(String name, float value) {
-        GL20.glUniform1f(getUniformLocation(name), value);
+        setUniform(getUniformLocation(name), value);
     }
 
     /** Uploads an int uniform to the shader. */
     public void setUniform(String name, int value) {
-        GL20.glUniform1i(getUniformLocation(name), value);
+        setUniform(getUniformLocation(name), value);
     }
 
     /** Uploads a boolean uniform to the shader (as integer). */
     public void setUniform(String name, boolean value) {
-        GL20.glUniform1i(getUniformLocation(name), value ? 1 : 0);
+        setUniform(getUniformLocation(name), value);
     }
 
     /** Uploads a 2D vector uniform to the shader. */
     public void setUniform(String name, Vector2f value) {
-        GL20.glUniform2f(getUniformLocation(name), value.getX(), value.getY());
+        setUniform(getUniformLocation(name), value);
     }
 
     /** Uploads a 3D vector uniform to the shader. */
     public void setUniform(String name, Vector3f value) {
-        GL20.glUniform3f(getUniformLocation(name), value.getX(), value.getY(), value.getZ());
+        setUniform(getUniformLocation(name), value);
     }
 
     /** Uploads a 4x4 matrix uniform to the shader. */
     public void setUniform(String name, Matrix4f value) {
-        FloatBuffer matrix = MemoryUtil.memAllocFloat(Matrix4f.SIZE * Matrix4f.SIZE);
-        matrix.put(value.getAll()).flip();
-        GL20.glUniformMatrix4fv(getUniformLocation(name), true, matrix);
-        MemoryUtil.memFree(matrix);
+        setUniform(getUniformLocation(name), value);
+    }
+
+    /** Uploads a float uniform to the shader, by location. */
+    public void setUniform(int location, float value) {
+        GL20.glUniform1f(location, value);
+    }
+
+    /** Uploads an int uniform to the shader, by location. */
+    public void setUniform(int location, int value) {
+        GL20.glUniform1i(location, value);
+    }
+
+    /** Uploads a boolean uniform to the shader (as integer), by location. */
+    public void setUniform(int location, boolean value) {
+        GL20.glUniform1i(location, value ? 1 : 0);
+    }
+
+    /** Uploads a 2D vector uniform to the shader, by location. */
+    public void setUniform(int location, Vector2f value) {
+        GL20.glUniform2f(location, value.getX(), value.getY());
+    }
+
+    /** Uploads a 3D vector uniform to the shader, by location. */
+    public void setUniform(int location, Vector3f value) {
+        GL20.glUniform3f(location, value.getX(), value.getY(), value.getZ());
+    }
+
+    /** Uploads a 4x4 matrix uniform to the shader, by location. */
+    public void setUniform(int location, Matrix4f value) {
+        matrixBuffer.clear();
+        matrixBuffer.put(value.getAll()).flip();
+        GL20.glUniformMatrix4fv(location, true, matrixBuffer);
     }
 
     /**
@@ -140,6 +213,11 @@ public class Shader {
         GL20.glUseProgram(0);
     }
 
+    /** @return The OpenGL ID of the linked shader program. */
+    public int getProgramID() {
+        return programID;
+    }
+
     /**
      * Deletes the shader program and its attached shaders from the GPU.
      */
@@ -149,5 +227,9 @@ public class Shader {
         GL20.glDeleteShader(vertexID);
         GL20.glDeleteShader(fragmentID);
         GL20.glDeleteProgram(programID);
+        if (matrixBuffer != null) {
+            MemoryUtil.memFree(matrixBuffer);
+            matrixBuffer = null;
+        }
     }
 }
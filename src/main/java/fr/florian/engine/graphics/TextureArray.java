@@ -0,0 +1,145 @@
+package fr.florian.engine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.stb.STBImage;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import static org.lwjgl.system.MemoryStack.stackPush;
+
+/**
+ * A 2D array texture packing several images of the same size, one per layer.
+ * Shaders sample it with a {@code sampler2DArray} and a layer index, so geometry using different
+ * images can be drawn with a single texture bind.
+ * Array textures are shared by every user of the same images through the {@link TextureCache},
+ * which counts their users.
+ */
+public class TextureArray {
+
+    /** Classpath paths of the images, in layer order. */
+    private final List<String> paths;
+
+    /** OpenGL ID of the texture. */
+    private int textureID;
+
+    /** Width of every layer (in pixels). */
+    private int width;
+
+    /** Height of every layer (in pixels). */
+    private int height;
+
+    /** Number of users of the texture (render thread only). */
+    int references;
+
+    /**
+     * Creates a texture array for the given images, without loading them.
+     *
+     * @param paths The classpath-relative paths of the images, in layer order.
+     */
+    TextureArray(List<String> paths) {
+        this.paths = List.copyOf(paths);
+    }
+
+    /**
+     * Loads every image and uploads them as the layers of a new OpenGL array texture.
+     *
+     * @throws RuntimeException If an image cannot be read or decoded, or the images differ in size.
+     */
+    void create() {
+        textureID = GL11.glGenTextures();
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, textureID);
+
+        for (int layer = 0; layer < paths.size(); layer++) {
+            String path = paths.get(layer);
+            try (var stack = stackPush()) {
+                IntBuffer widthBuffer = stack.mallocInt(1);
+                IntBuffer heightBuffer = stack.mallocInt(1);
+                IntBuffer channels = stack.mallocInt(1);
+
+                ByteBuffer image = STBImage.stbi_load_from_memory(loadImage(path), widthBuffer, heightBuffer, channels, 4);
+                if (image == null) {
+                    throw new RuntimeException("Failed to load texture: " + path);
+                }
+
+                // The first image gives the size of every layer
+                if (layer == 0) {
+                    width = widthBuffer.get(0);
+                    height = heightBuffer.get(0);
+                    GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8, width, height, paths.size(), 0,
+                            GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+                } else if (widthBuffer.get(0) != width || heightBuffer.get(0) != height) {
+                    STBImage.stbi_image_free(image);
+                    throw new RuntimeException("Texture " + path + " is " + widthBuffer.get(0) + "x" + heightBuffer.get(0)
+                            + ", expected " + width + "x" + height + " like the other layers");
+                }
+
+                GL12.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, width, height, 1,
+                        GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, image);
+                STBImage.stbi_image_free(image);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Error loading texture: " + path, e);
+            }
+        }
+
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL30.glGenerateMipmap(GL30.GL_TEXTURE_2D_ARRAY);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Loads the image bytes from the classpath as a direct ByteBuffer.
+     *
+     * @param path Classpath-relative resource path.
+     * @return A direct ByteBuffer containing the encoded image.
+     * @throws Exception If the file is not found or cannot be read.
+     */
+    private static ByteBuffer loadImage(String path) throws Exception {
+        try (var inputStream = Objects.requireNonNull(TextureArray.class.getResourceAsStream(path), "Resource not found: " + path)) {
+            byte[] bytes = inputStream.readAllBytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Deletes the OpenGL texture from GPU memory.
+     */
+    void destroy() {
+        GL11.glDeleteTextures(textureID);
+        textureID = 0;
+    }
+
+    /** @return The classpath-relative paths of the images, in layer order. */
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /** @return The number of layers. */
+    public int getLayerCount() {
+        return paths.size();
+    }
+
+    /** @return The width of every layer in pixels. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** @return The height of every layer in pixels. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** @return The OpenGL texture ID. */
+    public int getTextureID() {
+        return textureID;
+    }
+}
@@ -0,0 +1,57 @@
+package fr.florian.engine.graphics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference-counted cache of the {@link TextureArray}s used by materials, keyed by the resource paths
+ * of their layers.
+ * Each set of images is decoded and uploaded once, when its first user acquires it, and deleted when
+ * its last user releases it. Must only be used from the render thread (the OpenGL context thread).
+ */
+public class TextureCache {
+
+    /** Loaded textures, keyed by the paths of their layers in order. */
+    private static final Map<List<String>, TextureArray> textures = new HashMap<>();
+
+    /**
+     * Returns the array texture of the given images, loading it if no one uses it yet.
+     * Every call must be matched by a call to {@link #release}.
+     *
+     * @param paths The classpath-relative paths of the images, in layer order.
+     * @return The shared texture.
+     */
+    public static TextureArray acquire(List<String> paths) {
+        List<String> key = List.copyOf(paths);
+        TextureArray texture = textures.get(key);
+        if (texture == null) {
+            texture = new TextureArray(key);
+            texture.create();
+            textures.put(key, texture);
+        }
+        texture.references++;
+        return texture;
+    }
+
+    /**
+     * Releases a texture acquired with {@link #acquire}, deleting it once it has no user left.
+     *
+     * @param texture The texture to release.
+     * @throws IllegalStateException If the texture is not loaded.
+     */
+    public static void release(TextureArray texture) {
+        if (textures.get(texture.getPaths()) != texture || texture.references <= 0) {
+            throw new IllegalStateException("Texture released too many times: " + texture.getPaths());
+        }
+        if (--texture.references == 0) {
+            textures.remove(texture.getPaths());
+            texture.destroy();
+        }
+    }
+
+    /** @return The number of textures currently loaded. */
+    public static int getTextureCount() {
+        return textures.size();
+    }
+}
@@ -0,0 +1,98 @@
+package fr.florian.engine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Layout of the vertices of a {@link Mesh} in its vertex buffer, and the attribute setup reading it.
+ *
+ * {@link #FLOAT} stores {@code x, y, z, u, v, layer} as floats and suits any geometry.
+ * {@link #PACKED} stores a vertex of block-aligned geometry in two unsigned ints, decoded by the packed
+ * vertex shaders, for a third of the memory and bandwidth:
+ *
+ * <pre>
+ * word 0: x (5 bits) | y (5 bits) | z (5 bits) | u (5 bits) | v (5 bits) | face (3 bits) | ambient occlusion (2 bits)
+ * word 1: texture layer (16 bits) | unused (16 bits)
+ * </pre>
+ *
+ * Coordinates are whole numbers from 0 to {@link #PACKED_MAX_COORDINATE} (local to the mesh origin), the face is
+ * a {@link fr.florian.engine.objects.BlockFace} ordinal, and the ambient occlusion bits are reserved (always 0 for now).
+ */
+public enum VertexFormat {
+
+	/** Six floats per vertex: position, texture coordinates and texture layer. */
+	FLOAT(Mesh.VERTEX_STRIDE) {
+		@Override
+		public void setupAttributes() {
+			// Positions (location 0), texture coordinates (location 2) and texture layers (location 3)
+			GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, getStride(), 0);
+			GL20.glVertexAttribPointer(2, 2, GL11.GL_FLOAT, false, getStride(), 3 * Float.BYTES);
+			GL20.glVertexAttribPointer(3, 1, GL11.GL_FLOAT, false, getStride(), 5 * Float.BYTES);
+			GL20.glEnableVertexAttribArray(0);
+			GL20.glEnableVertexAttribArray(2);
+			GL20.glEnableVertexAttribArray(3);
+		}
+	},
+
+	/** Two unsigned ints per vertex, read as a {@code uvec2} at location 0. */
+	PACKED(VertexFormat.PACKED_INTS * Integer.BYTES) {
+		@Override
+		public void setupAttributes() {
+			GL30.glVertexAttribIPointer(0, 2, GL11.GL_UNSIGNED_INT, getStride(), 0);
+			GL20.glEnableVertexAttribArray(0);
+		}
+	};
+
+	/** Number of ints per {@link #PACKED} vertex. */
+	public static final int PACKED_INTS = 2;
+
+	/** Largest coordinate (position or texture coordinate) of a {@link #PACKED} vertex. */
+	public static final int PACKED_MAX_COORDINATE = 31;
+
+	/** Largest texture layer of a {@link #PACKED} vertex. */
+	public static final int PACKED_MAX_LAYER = 0xFFFF;
+
+	/** Size in bytes of one vertex. */
+	private final int stride;
+
+	VertexFormat(int stride) {
+		this.stride = stride;
+	}
+
+	/** @return The size in bytes of one vertex. */
+	public int getStride() {
+		return stride;
+	}
+
+	/**
+	 * Points and enables the vertex attributes of this format at the bound vertex buffer, in the bound VAO.
+	 */
+	public abstract void setupAttributes();
+
+	/**
+	 * Packs the first word of a {@link #PACKED} vertex. Values are not range checked.
+	 *
+	 * @param x    The X coordinate.
+	 * @param y    The Y coordinate.
+	 * @param z    The Z coordinate.
+	 * @param u    The U texture coordinate.
+	 * @param v    The V texture coordinate.
+	 * @param face The face index.
+	 * @param ao   The ambient occlusion level (0 to 3).
+	 * @return The packed word.
+	 */
+	public static int packVertex(int x, int y, int z, int u, int v, int face, int ao) {
+		return x | y << 5 | z << 10 | u << 15 | v << 20 | face << 25 | ao << 28;
+	}
+
+	/**
+	 * Packs the second word of a {@link #PACKED} vertex. The value is not range checked.
+	 *
+	 * @param layer The texture layer.
+	 * @return The packed word.
+	 */
+	public static int packLayer(int layer) {
+		return layer;
+	}
+}
@@ -10,6 +10,8 @@ import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL30;
 
+import java.util.function.Supplier;
+
 /**
  * The Window class handles the creation, display, and management of a GLFW window.
  * It also manages input events (keyboard, mouse), fullscreen mode, and OpenGL initialization.
@@ -58,6 +60,9 @@ public class Window {
     /** Projection matrix for 3D rendering. */
     private Matrix4f projectionMatrix;
 
+    /** Extra statistics appended to the title with the FPS, or null. */
+    private Supplier<String> debugInfo;
+
     /**
      * Creates a new window with the given size and title.
      *
@@ -140,7 +145,7 @@ public class Window {
         frames++;
 
         if (System.currentTimeMillis() > time + 1000) {
-            GLFW.glfwSetWindowTitle(window, title + " | FPS: " + frames);
+            GLFW.glfwSetWindowTitle(window, title + " | FPS: " + frames + (debugInfo != null ? " | " + debugInfo.get() : ""));
             time = System.currentTimeMillis();
             frames = 0;
         }
@@ -227,6 +232,15 @@ public class Window {
         return height;
     }
 
+    /**
+     * Sets extra statistics shown in the title bar after the FPS, refreshed once per second.
+     *
+     * @param debugInfo Supplier of the statistics text, or null for none.
+     */
+    public void setDebugInfo(Supplier<String> debugInfo) {
+        this.debugInfo = debugInfo;
+    }
+
     /** @return The title of the window. */
     public String getTitle() {
         return title;
@@ -0,0 +1,68 @@
+package fr.florian.engine.maths;
+
+/**
+ * The view frustum of a camera, as six planes extracted from the combined projection and view matrices.
+ * Used to skip geometry that lies entirely outside of the screen before issuing any draw call.
+ *
+ * Planes are stored as {@code (a, b, c, d)} with normals pointing inside the frustum, so a point
+ * {@code p} is inside a plane when {@code a * p.x + b * p.y + c * p.z + d >= 0}.
+ */
+public class Frustum {
+
+	/** Number of planes: left, right, bottom, top, near, far. */
+	private static final int PLANE_COUNT = 6;
+
+	/** Plane coefficients, 4 floats per plane. */
+	private final float[] planes = new float[PLANE_COUNT * 4];
+
+	/**
+	 * Extracts the frustum planes from the combined camera matrix (Gribb and Hartmann method).
+	 *
+	 * @param clip The projection matrix multiplied by the view matrix.
+	 */
+	public void update(Matrix4f clip) {
+		for (int i = 0; i < 3; i++) {
+			for (int side = 0; side < 2; side++) {
+				int plane = (i * 2 + side) * 4;
+				float sign = side == 0 ? 1 : -1;
+				// Row 3 plus or minus row i (rows are read as get(column, row))
+				planes[plane]     = clip.get(0, 3) + sign * clip.get(0, i);
+				planes[plane + 1] = clip.get(1, 3) + sign * clip.get(1, i);
+				planes[plane + 2] = clip.get(2, 3) + sign * clip.get(2, i);
+				planes[plane + 3] = clip.get(3, 3) + sign * clip.get(3, i);
+
+				float length = (float) Math.sqrt(planes[plane] * planes[plane]
+						+ planes[plane + 1] * planes[plane + 1] + planes[plane + 2] * planes[plane + 2]);
+				for (int k = 0; k < 4; k++) {
+					planes[plane + k] /= length;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests whether an axis-aligned box is at least partly inside the frustum.
+	 * The test is conservative: boxes near a frustum corner may be reported visible.
+	 *
+	 * @param minX Minimum X of the box.
+	 * @param minY Minimum Y of the box.
+	 * @param minZ Minimum Z of the box.
+	 * @param maxX Maximum X of the box.
+	 * @param maxY Maximum Y of the box.
+	 * @param maxZ Maximum Z of the box.
+	 * @return False if the box is entirely outside of the frustum.
+	 */
+	public boolean intersectsBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		for (int plane = 0; plane < PLANE_COUNT * 4; plane += 4) {
+			float a = planes[plane], b = planes[plane + 1], c = planes[plane + 2];
+			// Corner of the box furthest along the plane normal
+			float x = a >= 0 ? maxX : minX;
+			float y = b >= 0 ? maxY : minY;
+			float z = c >= 0 ? maxZ : minZ;
+			if (a * x + b * y + c * z + planes[plane + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
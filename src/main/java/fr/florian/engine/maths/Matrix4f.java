@@ -5,6 +5,10 @@ import java.util.Arrays;
 /**
  * A 4x4 matrix class used for 3D transformations, including translation, rotation, scaling, projection, and view.
  * Stored in row-major order.
+ *
+ * The factories taking a {@code dest} matrix overwrite it and return it instead of allocating, and build
+ * rotations in closed form instead of multiplying one matrix per axis; they are meant for per-frame code.
+ * The other factories return a new matrix.
  */
 public class Matrix4f {
 
@@ -12,7 +16,7 @@ public class Matrix4f {
 	public static final int SIZE = 4;
 
 	/** Flat array holding the matrix elements (16 floats). */
-	private float[] elements = new float[SIZE * SIZE];
+	private final float[] elements = new float[SIZE * SIZE];
 
 	/**
 	 * Creates and returns an identity matrix.
@@ -20,17 +24,22 @@ public class Matrix4f {
 	 * @return A new identity matrix.
 	 */
 	public static Matrix4f identity() {
-		Matrix4f result = new Matrix4f();
-		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				result.set(i, j, 0);
-			}
-		}
-		result.set(0, 0, 1);
-		result.set(1, 1, 1);
-		result.set(2, 2, 1);
-		result.set(3, 3, 1);
-		return result;
+		return identity(new Matrix4f());
+	}
+
+	/**
+	 * Sets a matrix to the identity.
+	 *
+	 * @param dest The matrix to overwrite.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f identity(Matrix4f dest) {
+		Arrays.fill(dest.elements, 0);
+		dest.set(0, 0, 1);
+		dest.set(1, 1, 1);
+		dest.set(2, 2, 1);
+		dest.set(3, 3, 1);
+		return dest;
 	}
 
 	/**
@@ -40,11 +49,24 @@ public class Matrix4f {
 	 * @return A matrix representing translation.
 	 */
 	public static Matrix4f translate(Vector3f translate) {
-		Matrix4f result = Matrix4f.identity();
-		result.set(3, 0, translate.getX());
-		result.set(3, 1, translate.getY());
-		result.set(3, 2, translate.getZ());
-		return result;
+		return translation(translate.getX(), translate.getY(), translate.getZ(), new Matrix4f());
+	}
+
+	/**
+	 * Sets a matrix to a translation.
+	 *
+	 * @param x    The translation along X.
+	 * @param y    The translation along Y.
+	 * @param z    The translation along Z.
+	 * @param dest The matrix to overwrite.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f translation(float x, float y, float z, Matrix4f dest) {
+		identity(dest);
+		dest.set(3, 0, x);
+		dest.set(3, 1, y);
+		dest.set(3, 2, z);
+		return dest;
 	}
 
 	/**
@@ -98,14 +120,62 @@ public class Matrix4f {
 	 * @return A complete transformation matrix.
 	 */
 	public static Matrix4f transform(Vector3f position, Vector3f rotation, Vector3f scale) {
-		Matrix4f translationMatrix = Matrix4f.translate(position);
-		Matrix4f rotX = Matrix4f.rotate(rotation.getX(), new Vector3f(1, 0, 0));
-		Matrix4f rotY = Matrix4f.rotate(rotation.getY(), new Vector3f(0, 1, 0));
-		Matrix4f rotZ = Matrix4f.rotate(rotation.getZ(), new Vector3f(0, 0, 1));
-		Matrix4f scaleMatrix = Matrix4f.scale(scale);
+		return transform(position, rotation, scale, new Matrix4f());
+	}
+
+	/**
+	 * Sets a matrix to a transformation combining translation, rotation (XYZ), and scaling,
+	 * equal to the product of the matrices built by {@link #translate}, {@link #rotate} and {@link #scale}.
+	 *
+	 * @param position The position vector.
+	 * @param rotation The rotation vector (in degrees).
+	 * @param scale    The scale vector.
+	 * @param dest     The matrix to overwrite.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f transform(Vector3f position, Vector3f rotation, Vector3f scale, Matrix4f dest) {
+		rotationXYZ(rotation, dest);
+		scaleAndTranslateRow(dest.elements, 0, scale.getX(), position);
+		scaleAndTranslateRow(dest.elements, SIZE, scale.getY(), position);
+		scaleAndTranslateRow(dest.elements, 2 * SIZE, scale.getZ(), position);
+		return dest;
+	}
 
-		Matrix4f rotationMatrix = multiply(rotX, multiply(rotY, rotZ));
-		return multiply(translationMatrix, multiply(rotationMatrix, scaleMatrix));
+	/**
+	 * Scales one row of a rotation, then sets its translation, which goes through the rotation and scale.
+	 */
+	private static void scaleAndTranslateRow(float[] e, int i, float scale, Vector3f position) {
+		e[i] *= scale;
+		e[i + 1] *= scale;
+		e[i + 2] *= scale;
+		e[i + 3] = e[i] * position.getX() + e[i + 1] * position.getY() + e[i + 2] * position.getZ();
+	}
+
+	/**
+	 * Sets a matrix to the rotation used by {@link #transform}: the rotations around X, Y then Z axes
+	 * built by {@link #rotate}, multiplied in closed form.
+	 *
+	 * @param rotation The rotation around each axis (in degrees).
+	 * @param dest     The matrix to overwrite.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f rotationXYZ(Vector3f rotation, Matrix4f dest) {
+		double x = Math.toRadians(rotation.getX()), y = Math.toRadians(rotation.getY()), z = Math.toRadians(rotation.getZ());
+		float cx = (float) Math.cos(x), sx = (float) Math.sin(x);
+		float cy = (float) Math.cos(y), sy = (float) Math.sin(y);
+		float cz = (float) Math.cos(z), sz = (float) Math.sin(z);
+
+		identity(dest);
+		dest.set(0, 0, cy * cz);
+		dest.set(0, 1, -cy * sz);
+		dest.set(0, 2, sy);
+		dest.set(1, 0, cx * sz + sx * sy * cz);
+		dest.set(1, 1, cx * cz - sx * sy * sz);
+		dest.set(1, 2, -sx * cy);
+		dest.set(2, 0, sx * sz - cx * sy * cz);
+		dest.set(2, 1, sx * cz + cx * sy * sz);
+		dest.set(2, 2, cx * cy);
+		return dest;
 	}
 
 	/**
@@ -140,14 +210,41 @@ public class Matrix4f {
 	 * @return A view matrix used for rendering from the camera's perspective.
 	 */
 	public static Matrix4f view(Vector3f position, Vector3f rotation) {
-		Vector3f negative = new Vector3f(-position.getX(), -position.getY(), -position.getZ());
-		Matrix4f translationMatrix = Matrix4f.translate(negative);
-		Matrix4f rotX = Matrix4f.rotate(rotation.getX(), new Vector3f(1, 0, 0));
-		Matrix4f rotY = Matrix4f.rotate(rotation.getY(), new Vector3f(0, 1, 0));
-		Matrix4f rotZ = Matrix4f.rotate(rotation.getZ(), new Vector3f(0, 0, 1));
+		return view(position, rotation, new Matrix4f());
+	}
+
+	/**
+	 * Sets a matrix to the view matrix of a camera: the opposite translation of its position, followed by
+	 * the rotations around Z, Y then X axes built by {@link #rotate}, multiplied in closed form.
+	 *
+	 * @param position The camera position.
+	 * @param rotation The camera rotation (pitch, yaw, roll).
+	 * @param dest     The matrix to overwrite.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f view(Vector3f position, Vector3f rotation, Matrix4f dest) {
+		double x = Math.toRadians(rotation.getX()), y = Math.toRadians(rotation.getY()), z = Math.toRadians(rotation.getZ());
+		float cx = (float) Math.cos(x), sx = (float) Math.sin(x);
+		float cy = (float) Math.cos(y), sy = (float) Math.sin(y);
+		float cz = (float) Math.cos(z), sz = (float) Math.sin(z);
+
+		identity(dest);
+		dest.set(0, 0, cz * cy);
+		dest.set(0, 1, cz * sy * sx - sz * cx);
+		dest.set(0, 2, cz * sy * cx + sz * sx);
+		dest.set(1, 0, sz * cy);
+		dest.set(1, 1, sz * sy * sx + cz * cx);
+		dest.set(1, 2, sz * sy * cx - cz * sx);
+		dest.set(2, 0, -sy);
+		dest.set(2, 1, cy * sx);
+		dest.set(2, 2, cy * cx);
 
-		Matrix4f rotationMatrix = multiply(rotZ, multiply(rotY, rotX));
-		return multiply(translationMatrix, rotationMatrix);
+		// The translation goes through the rotation
+		float[] e = dest.elements;
+		for (int i = 0; i < 3 * SIZE; i += SIZE) {
+			e[i + 3] = -(e[i] * position.getX() + e[i + 1] * position.getY() + e[i + 2] * position.getZ());
+		}
+		return dest;
 	}
 
 	/**
@@ -158,17 +255,33 @@ public class Matrix4f {
 	 * @return The result of matrix multiplication (matrix * other).
 	 */
 	public static Matrix4f multiply(Matrix4f matrix, Matrix4f other) {
-		Matrix4f result = Matrix4f.identity();
-		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				result.set(i, j,
-						matrix.get(i, 0) * other.get(0, j) +
-								matrix.get(i, 1) * other.get(1, j) +
-								matrix.get(i, 2) * other.get(2, j) +
-								matrix.get(i, 3) * other.get(3, j));
-			}
+		return mul(matrix, other, new Matrix4f());
+	}
+
+	/**
+	 * Multiplies two 4x4 matrices like {@link #multiply}, into a destination matrix.
+	 * The destination may be one of the operands.
+	 *
+	 * @param matrix The first matrix.
+	 * @param other  The second matrix.
+	 * @param dest   The matrix to overwrite with the result.
+	 * @return The destination matrix.
+	 */
+	public static Matrix4f mul(Matrix4f matrix, Matrix4f other, Matrix4f dest) {
+		float[] a = matrix.elements, b = other.elements, r = dest.elements;
+		// The first matrix is read entirely for each row of the result, so it is copied first
+		float a00 = a[0], a01 = a[1], a02 = a[2], a03 = a[3];
+		float a10 = a[4], a11 = a[5], a12 = a[6], a13 = a[7];
+		float a20 = a[8], a21 = a[9], a22 = a[10], a23 = a[11];
+		float a30 = a[12], a31 = a[13], a32 = a[14], a33 = a[15];
+		for (int row = 0; row < SIZE * SIZE; row += SIZE) {
+			float b0 = b[row], b1 = b[row + 1], b2 = b[row + 2], b3 = b[row + 3];
+			r[row]     = b0 * a00 + b1 * a10 + b2 * a20 + b3 * a30;
+			r[row + 1] = b0 * a01 + b1 * a11 + b2 * a21 + b3 * a31;
+			r[row + 2] = b0 * a02 + b1 * a12 + b2 * a22 + b3 * a32;
+			r[row + 3] = b0 * a03 + b1 * a13 + b2 * a23 + b3 * a33;
 		}
-		return result;
+		return dest;
 	}
 
 	@Override
@@ -0,0 +1,127 @@
+package fr.florian.engine.maths;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seeded 2D gradient (Perlin) noise.
+ * The same seed always produces the same values, on any machine.
+ * Instances are immutable and can be shared between threads.
+ */
+public class PerlinNoise {
+
+	/** Gradient directions (unit and diagonal vectors). */
+	private static final float[] GRADIENTS_X = {1, -1, 0, 0, 0.7071f, -0.7071f, 0.7071f, -0.7071f};
+
+	/** Gradient directions (unit and diagonal vectors). */
+	private static final float[] GRADIENTS_Y = {0, 0, 1, -1, 0.7071f, 0.7071f, -0.7071f, -0.7071f};
+
+	/** Shuffled permutation table, duplicated to avoid index wrapping. */
+	private final int[] permutation = new int[512];
+
+	/**
+	 * Creates a noise generator from a seed.
+	 *
+	 * @param seed The seed used to shuffle the permutation table.
+	 */
+	public PerlinNoise(long seed) {
+		int[] values = new int[256];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+
+		Random random = new Random(seed);
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+
+		for (int i = 0; i < permutation.length; i++) {
+			permutation[i] = values[i & 255];
+		}
+	}
+
+	/**
+	 * Evaluates the noise at a single point.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return A value roughly in [-1, 1].
+	 */
+	public float noise(float x, float y) {
+		int floorX = (int) Math.floor(x);
+		int floorY = (int) Math.floor(y);
+		float fx = x - floorX;
+		float fy = y - floorY;
+		int cellX = floorX & 255;
+		int cellY = floorY & 255;
+
+		int a = permutation[cellX] + cellY;
+		int b = permutation[cellX + 1] + cellY;
+
+		float n00 = gradient(permutation[a], fx, fy);
+		float n10 = gradient(permutation[b], fx - 1, fy);
+		float n01 = gradient(permutation[a + 1], fx, fy - 1);
+		float n11 = gradient(permutation[b + 1], fx - 1, fy - 1);
+
+		float u = fade(fx);
+		float v = fade(fy);
+		float nx0 = n00 + u * (n10 - n00);
+		float nx1 = n01 + u * (n11 - n01);
+		return (nx0 + v * (nx1 - nx0)) * 1.4142f;
+	}
+
+	/**
+	 * Evaluates fractal noise (several octaves) over a regular grid, in one call.
+	 * The result for grid cell (i, j) is stored at {@code out[j * width + i]} and is roughly in [-1, 1].
+	 *
+	 * @param out         Destination array of at least {@code width * depth} values.
+	 * @param startX      X coordinate of the first grid point.
+	 * @param startY      Y coordinate of the first grid point.
+	 * @param width       Number of grid points along X.
+	 * @param depth       Number of grid points along Y.
+	 * @param frequency   Noise frequency of the first octave (noise units per grid step).
+	 * @param octaves     Number of octaves to sum.
+	 * @param persistence Amplitude factor between two octaves.
+	 */
+	public void fill(float[] out, float startX, float startY, int width, int depth,
+					 float frequency, int octaves, float persistence) {
+		Arrays.fill(out, 0, width * depth, 0);
+
+		float amplitude = 1;
+		float total = 0;
+		for (int octave = 0; octave < octaves; octave++) {
+			for (int j = 0; j < depth; j++) {
+				float y = (startY + j) * frequency;
+				int row = j * width;
+				for (int i = 0; i < width; i++) {
+					out[row + i] += noise((startX + i) * frequency, y) * amplitude;
+				}
+			}
+			total += amplitude;
+			amplitude *= persistence;
+			frequency *= 2;
+		}
+
+		for (int i = 0; i < width * depth; i++) {
+			out[i] /= total;
+		}
+	}
+
+	/**
+	 * Quintic smoothstep used to interpolate between lattice points.
+	 */
+	private static float fade(float t) {
+		return t * t * t * (t * (t * 6 - 15) + 10);
+	}
+
+	/**
+	 * Dot product between the hashed gradient and the offset vector.
+	 */
+	private static float gradient(int hash, float x, float y) {
+		int index = hash & 7;
+		return GRADIENTS_X[index] * x + GRADIENTS_Y[index] * y;
+	}
+}
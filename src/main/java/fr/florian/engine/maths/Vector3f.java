@@ -41,6 +41,31 @@ public class Vector3f {
 		this.z = z;
 	}
 
+	/**
+	 * Adds the given components to this vector, in place.
+	 *
+	 * @param x Value added to X.
+	 * @param y Value added to Y.
+	 * @param z Value added to Z.
+	 * @return This vector.
+	 */
+	public Vector3f addLocal(float x, float y, float z) {
+		this.x += x;
+		this.y += y;
+		this.z += z;
+		return this;
+	}
+
+	/**
+	 * Adds another vector to this vector component-wise, in place.
+	 *
+	 * @param vector The vector to add.
+	 * @return This vector.
+	 */
+	public Vector3f addLocal(Vector3f vector) {
+		return addLocal(vector.getX(), vector.getY(), vector.getZ());
+	}
+
 	/**
 	 * Adds two vectors component-wise.
 	 *
@@ -0,0 +1,64 @@
+package fr.florian.engine.objects;
+
+/**
+ * The six faces of a block, with the unit offset pointing out of each face.
+ * The order matches the face order of the cube mesh built by {@link Blocks}.
+ */
+public enum BlockFace {
+
+    /** Face pointing towards -Z. */
+    BACK(0, 0, -1),
+
+    /** Face pointing towards +Z. */
+    FRONT(0, 0, 1),
+
+    /** Face pointing towards +X. */
+    RIGHT(1, 0, 0),
+
+    /** Face pointing towards -X. */
+    LEFT(-1, 0, 0),
+
+    /** Face pointing towards +Y. */
+    TOP(0, 1, 0),
+
+    /** Face pointing towards -Y. */
+    BOTTOM(0, -1, 0);
+
+    /** Cached array of all faces, to avoid cloning {@link #values()} in hot loops. */
+    public static final BlockFace[] VALUES = values();
+
+    /** X offset of the neighbouring block behind this face. */
+    private final int dx;
+
+    /** Y offset of the neighbouring block behind this face. */
+    private final int dy;
+
+    /** Z offset of the neighbouring block behind this face. */
+    private final int dz;
+
+    BlockFace(int dx, int dy, int dz) {
+        this.dx = dx;
+        this.dy = dy;
+        this.dz = dz;
+    }
+
+    /** @return The face pointing in the opposite direction. */
+    public BlockFace opposite() {
+        return VALUES[ordinal() ^ 1];
+    }
+
+    /** @return The X offset of the neighbouring block. */
+    public int getDx() {
+        return dx;
+    }
+
+    /** @return The Y offset of the neighbouring block. */
+    public int getDy() {
+        return dy;
+    }
+
+    /** @return The Z offset of the neighbouring block. */
+    public int getDz() {
+        return dz;
+    }
+}
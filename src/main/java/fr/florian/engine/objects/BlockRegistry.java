@@ -0,0 +1,132 @@
+package fr.florian.engine.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global registry of {@link BlockType}s, indexed by block ID.
+ * Lookups are a plain array access so they can be used in meshing loops.
+ * The registry also assigns every distinct face texture a layer in the block texture array
+ * (see {@link Blocks#createTextures()}), in registration order.
+ * The registry is frozen once the texture array is built: later types would have no texture layer, and the
+ * types array is read without synchronization by meshing workers started after that point.
+ */
+public class BlockRegistry {
+
+    /** Maximum number of block types (IDs must fit in a 16-bit chunk palette). */
+    public static final int MAX_TYPES = 1 << ChunkStorage.MAX_BITS;
+
+    /** Registered types, indexed by ID. */
+    private static BlockType[] types = new BlockType[16];
+
+    /** Registered types, in registration order. */
+    private static final List<BlockType> registered = new ArrayList<>();
+
+    /** Distinct face textures of the registered types, in layer order. */
+    private static final List<String> texturePaths = new ArrayList<>();
+
+    /** Layer of each face texture, keyed by path. */
+    private static final Map<String, Integer> textureLayers = new HashMap<>();
+
+    /** Whether the texture array was built, after which no type can be registered. */
+    private static boolean frozen;
+
+    /** The empty block. */
+    public static final BlockType AIR = register(new BlockType(0, "air", "/textures/airblock.png", false, false));
+
+    /** Grass block, used for the top layer of the terrain. */
+    public static final BlockType GRASS = register(new BlockType(1, "grass", "/textures/grassblock.png", true, true));
+
+    /** Dirt block, used below the top layer. */
+    public static final BlockType DIRT = register(new BlockType(2, "dirt", "/textures/dirtblock.png", true, true));
+
+    /**
+     * Registers a new block type.
+     *
+     * @param type The type to register.
+     * @return The registered type.
+     * @throws IllegalArgumentException If the ID is out of range or already used.
+     * @throws IllegalStateException    If the registry is frozen.
+     */
+    public static synchronized BlockType register(BlockType type) {
+        if (frozen) {
+            throw new IllegalStateException("Block registry is frozen, cannot register " + type);
+        }
+        int id = type.getId();
+        if (id < 0 || id >= MAX_TYPES) {
+            throw new IllegalArgumentException("Block ID out of range: " + type);
+        }
+        if (id >= types.length) {
+            BlockType[] grown = new BlockType[Math.max(id + 1, types.length * 2)];
+            System.arraycopy(types, 0, grown, 0, types.length);
+            types = grown;
+        }
+        if (types[id] != null) {
+            throw new IllegalArgumentException("Block ID " + id + " already used by " + types[id]);
+        }
+
+        // The layers are assigned before the type is published to the readers of the registry
+        int[] layers = new int[BlockFace.VALUES.length];
+        for (BlockFace face : BlockFace.VALUES) {
+            layers[face.ordinal()] = textureLayers.computeIfAbsent(type.getTexture(face), path -> {
+                texturePaths.add(path);
+                return texturePaths.size() - 1;
+            });
+        }
+        type.setTextureLayers(layers);
+
+        types[id] = type;
+        registered.add(type);
+        return type;
+    }
+
+    /**
+     * Returns true if a block type is registered for an ID.
+     *
+     * @param id The block ID.
+     * @return True if {@link #get} returns the type of this ID rather than the fallback.
+     */
+    public static boolean isRegistered(int id) {
+        BlockType[] current = types;
+        return id >= 0 && id < current.length && current[id] != null;
+    }
+
+    /**
+     * Returns the block type registered for an ID.
+     * Decoded chunks only hold registered IDs (see {@link ChunkStorage#read}), so the fallback is never drawn as a hole.
+     *
+     * @param id The block ID.
+     * @return The block type, or {@link #AIR} if the ID is unknown.
+     */
+    public static BlockType get(int id) {
+        BlockType[] current = types;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            return AIR;
+        }
+        return current[id];
+    }
+
+    /** @return The distinct face textures of the registered types, in texture array layer order. */
+    public static synchronized List<String> getTexturePaths() {
+        return List.copyOf(texturePaths);
+    }
+
+    /**
+     * Rejects any further registration and returns the final face textures, in texture array layer order.
+     * Called when the block texture array is built.
+     *
+     * @return The distinct face textures of the registered types.
+     */
+    static synchronized List<String> freeze() {
+        frozen = true;
+        return List.copyOf(texturePaths);
+    }
+
+    /** @return All registered block types, in registration order. */
+    public static List<BlockType> getTypes() {
+        return Collections.unmodifiableList(registered);
+    }
+}
@@ -0,0 +1,134 @@
+package fr.florian.engine.objects;
+
+import java.util.Arrays;
+
+/**
+ * Immutable description of a kind of block (flyweight).
+ * Chunks only store the block ID; every per-type property is shared through this class.
+ */
+public final class BlockType {
+
+    /** Unique identifier stored in chunk data (0 = Air). */
+    private final int id;
+
+    /** Human-readable name of the block type. */
+    private final String name;
+
+    /** Classpath texture of each face, indexed by {@link BlockFace#ordinal()}. */
+    private final String[] textures;
+
+    /** Layer of each face texture in the block texture array, assigned once when the type is registered. */
+    private int[] textureLayers;
+
+    /** Whether the block hides the faces of its neighbours. */
+    private final boolean opaque;
+
+    /** Whether the block has collision. */
+    private final boolean solid;
+
+    /**
+     * Creates a block type using the same texture on every face.
+     *
+     * @param id      The block ID.
+     * @param name    The block name.
+     * @param texture Classpath path of the texture used on all faces.
+     * @param opaque  True if the block hides adjacent faces.
+     * @param solid   True if the block has collision.
+     */
+    public BlockType(int id, String name, String texture, boolean opaque, boolean solid) {
+        this(id, name, filled(texture), opaque, solid);
+    }
+
+    /**
+     * Creates a block type with one texture per face.
+     *
+     * @param id       The block ID.
+     * @param name     The block name.
+     * @param textures Classpath texture of each face, in {@link BlockFace} order.
+     * @param opaque   True if the block hides adjacent faces.
+     * @param solid    True if the block has collision.
+     */
+    public BlockType(int id, String name, String[] textures, boolean opaque, boolean solid) {
+        if (textures.length != BlockFace.VALUES.length) {
+            throw new IllegalArgumentException("Expected " + BlockFace.VALUES.length + " face textures for " + name);
+        }
+        this.id = id;
+        this.name = name;
+        this.textures = textures.clone();
+        this.opaque = opaque;
+        this.solid = solid;
+    }
+
+    private static String[] filled(String texture) {
+        String[] textures = new String[BlockFace.VALUES.length];
+        Arrays.fill(textures, texture);
+        return textures;
+    }
+
+    /** @return The block ID. */
+    public int getId() {
+        return id;
+    }
+
+    /** @return The block name. */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the texture used on a face of the block.
+     *
+     * @param face The block face.
+     * @return The classpath path of the face texture.
+     */
+    public String getTexture(BlockFace face) {
+        return textures[face.ordinal()];
+    }
+
+    /**
+     * Returns the layer of a face texture in the block texture array ({@link BlockRegistry#getTexturePaths()}).
+     *
+     * @param face The block face.
+     * @return The texture layer.
+     * @throws IllegalStateException If the type is not registered.
+     */
+    public int getTextureLayer(BlockFace face) {
+        if (textureLayers == null) {
+            throw new IllegalStateException("Block type is not registered: " + this);
+        }
+        return textureLayers[face.ordinal()];
+    }
+
+    /**
+     * Assigns the texture layers of the faces. Called once by {@link BlockRegistry#register}, before the type is published.
+     *
+     * @param textureLayers The layer of each face texture, in {@link BlockFace} order.
+     * @throws IllegalStateException If the layers were already assigned.
+     */
+    void setTextureLayers(int[] textureLayers) {
+        if (this.textureLayers != null) {
+            throw new IllegalStateException("Texture layers already assigned for " + this);
+        }
+        this.textureLayers = textureLayers.clone();
+    }
+
+    /** @return True if the block hides the faces of adjacent blocks. */
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    /** @return True if the block has collision. */
+    public boolean isSolid() {
+        return solid;
+    }
+
+    /** @return True if this is the air block (ID 0). */
+    public boolean isAir() {
+        return id == 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + id;
+    }
+}
@@ -2,77 +2,154 @@ package fr.florian.engine.objects;
 
 import fr.florian.engine.graphics.Material;
 import fr.florian.engine.graphics.Mesh;
+import fr.florian.engine.graphics.TextureArray;
+import fr.florian.engine.graphics.TextureCache;
 import fr.florian.engine.graphics.Vertex;
 import fr.florian.engine.maths.Vector2f;
 import fr.florian.engine.maths.Vector3f;
 
 /**
  * Utility class for creating standard block meshes.
- * Provides a method to generate a textured cube mesh used by voxel blocks.
+ * Provides the vertices of a textured unit cube and keeps the cube shared by instanced chunk meshes.
+ * Also owns the block texture array, holding every block face texture in one layer each,
+ * so that any block geometry can be drawn with a single texture bind.
  */
 public class Blocks {
 
+    /** Texture array of every block face texture, layered as in {@link BlockRegistry#getTexturePaths()}. */
+    private static TextureArray textures;
+
+    /** Material sampling the block texture array, shared by every block mesh. */
+    private static Material material;
+
+    /** Unit cube drawn for every instance of instanced chunk meshes, its layer attribute holding the face index. */
+    private static Mesh instanceCube;
+
+    /**
+     * Returns the unit cube shared by instanced chunk meshes. Can be called from any thread once
+     * {@link #createTextures()} has run.
+     *
+     * @return The shared cube, already uploaded.
+     */
+    public static Mesh getInstanceCube() {
+        if (instanceCube == null) {
+            throw new IllegalStateException("Block textures are not created");
+        }
+        return instanceCube;
+    }
+
+    /**
+     * Frees the GPU resources of the unit cube returned by {@link #getInstanceCube()}.
+     */
+    public static void destroyInstanceCube() {
+        if (instanceCube != null) {
+            instanceCube.destroy();
+            instanceCube = null;
+        }
+    }
+
+    /**
+     * Packs the textures of every registered block type into the block texture array, and uploads the
+     * cube shared by instanced chunk meshes. The {@link BlockRegistry} is frozen from then on.
+     * Must be called from the OpenGL thread, after every block type is registered and before any
+     * block mesh is uploaded.
+     */
+    public static void createTextures() {
+        textures = TextureCache.acquire(BlockRegistry.freeze());
+        material = new Material(textures);
+
+        MeshBuilder builder = new MeshBuilder();
+        for (BlockFace face : BlockFace.VALUES) {
+            builder.addFace(face, 0, 0, 0, 1, 1, 1, face.ordinal());
+        }
+        Mesh cube = builder.build(material);
+        cube.create();
+        instanceCube = cube;
+    }
+
+    /**
+     * Releases the block texture array, which is deleted once nothing else uses it.
+     * The block material can no longer be used afterwards.
+     */
+    public static void destroyTextures() {
+        if (textures != null) {
+            TextureCache.release(textures);
+            textures = null;
+            material = null;
+        }
+    }
+
+    /**
+     * Returns the material sampling the block texture array. Can be called from any thread once
+     * {@link #createTextures()} has run.
+     *
+     * @return The shared block material.
+     */
+    public static Material getMaterial() {
+        if (material == null) {
+            throw new IllegalStateException("Block textures are not created");
+        }
+        return material;
+    }
+
     /**
-     * Creates a cube mesh with the given material.
-     * The cube is made of 6 faces, each composed of 4 vertices and 2 triangles.
+     * Creates the 24 vertices of a unit cube, 4 per face in {@link BlockFace} order.
      *
-     * @param material The texture material applied to the cube.
-     * @return A Mesh representing a unit cube (1x1x1) with texture coordinates.
+     * @return A new array of cube vertices.
      */
-    public static Mesh createCubeMesh(Material material) {
-        return new Mesh(
-                new Vertex[]{
-                        // Back face (-Z)
-                        new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(1, 0, 0), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(1, 1, 0), new Vector2f(1, 0)),
-
-                        // Front face (+Z)
-                        new Vertex(new Vector3f(0, 1, 1), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(0, 0, 1), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
-
-                        // Right face (+X)
-                        new Vertex(new Vector3f(1, 1, 0), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(1, 0, 0), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
-
-                        // Left face (-X)
-                        new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(0, 0, 1), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(0, 1, 1), new Vector2f(1, 0)),
-
-                        // Top face (+Y)
-                        new Vertex(new Vector3f(0, 1, 1), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(1, 1, 0), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
-
-                        // Bottom face (-Y)
-                        new Vertex(new Vector3f(0, 0, 1), new Vector2f(0, 0)),
-                        new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
-                        new Vertex(new Vector3f(1, 0, 0), new Vector2f(1, 1)),
-                        new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 0)),
-                },
-                new int[]{
-                        // Back face
-                        0, 3, 1, 3, 2, 1,
-                        // Front face
-                        4, 5, 7, 5, 6, 7,
-                        // Right face (wound to ensure correct facing)
-                        8, 11, 9, 9, 11, 10,
-                        // Left face
-                        12, 13, 15, 15, 13, 14,
-                        // Top face (wound for correct normal direction)
-                        16, 19, 17, 17, 19, 18,
-                        // Bottom face
-                        20, 21, 23, 23, 21, 22
-                },
-                material
-        );
+    public static Vertex[] createCubeVertices() {
+        return new Vertex[]{
+                // Back face (-Z)
+                new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(1, 0, 0), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(1, 1, 0), new Vector2f(1, 0)),
+
+                // Front face (+Z)
+                new Vertex(new Vector3f(0, 1, 1), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(0, 0, 1), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
+
+                // Right face (+X)
+                new Vertex(new Vector3f(1, 1, 0), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(1, 0, 0), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
+
+                // Left face (-X)
+                new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(0, 0, 1), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(0, 1, 1), new Vector2f(1, 0)),
+
+                // Top face (+Y)
+                new Vertex(new Vector3f(0, 1, 1), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(0, 1, 0), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(1, 1, 0), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(1, 1, 1), new Vector2f(1, 0)),
+
+                // Bottom face (-Y)
+                new Vertex(new Vector3f(0, 0, 1), new Vector2f(0, 0)),
+                new Vertex(new Vector3f(0, 0, 0), new Vector2f(0, 1)),
+                new Vertex(new Vector3f(1, 0, 0), new Vector2f(1, 1)),
+                new Vertex(new Vector3f(1, 0, 1), new Vector2f(1, 0)),
+        };
     }
+
+    /** Triangle indices of the cube, 6 per face in {@link BlockFace} order. */
+    static final int[] CUBE_INDICES = {
+            // Back face
+            0, 3, 1, 3, 2, 1,
+            // Front face
+            4, 5, 7, 5, 6, 7,
+            // Right face (wound to ensure correct facing)
+            8, 11, 9, 9, 11, 10,
+            // Left face
+            12, 13, 15, 15, 13, 14,
+            // Top face (wound for correct normal direction)
+            16, 19, 17, 17, 19, 18,
+            // Bottom face
+            20, 21, 23, 23, 21, 22
+    };
 }
@@ -10,11 +10,11 @@ import org.lwjgl.glfw.GLFW;
  */
 public class Camera {
 
-	/** Current position of the camera in world space. */
-	private Vector3f position;
+	/** Current position of the camera in world space, updated in place. */
+	private final Vector3f position;
 
-	/** Current rotation of the camera. */
-	private Vector3f rotation;
+	/** Current rotation of the camera, updated in place. */
+	private final Vector3f rotation;
 
 	/** Movement speed in units per frame. */
 	private float moveSpeed = 0.05F;
@@ -57,13 +57,13 @@ public class Camera {
 		float x = (float) (Math.sin(Math.toRadians(rotation.getY())) * moveSpeed);
 		float z = (float) (Math.cos(Math.toRadians(rotation.getY())) * moveSpeed);
 
-		// Movement controls (first-person style)
-		if (Input.isKeyDown(GLFW.GLFW_KEY_A)) position = Vector3f.add(position, new Vector3f(-z, 0, x));
-		if (Input.isKeyDown(GLFW.GLFW_KEY_D)) position = Vector3f.add(position, new Vector3f(z, 0, -x));
-		if (Input.isKeyDown(GLFW.GLFW_KEY_W)) position = Vector3f.add(position, new Vector3f(-x, 0, -z));
-		if (Input.isKeyDown(GLFW.GLFW_KEY_S)) position = Vector3f.add(position, new Vector3f(x, 0, z));
-		if (Input.isKeyDown(GLFW.GLFW_KEY_SPACE)) position = Vector3f.add(position, new Vector3f(0, moveSpeed, 0));
-		if (Input.isKeyDown(GLFW.GLFW_KEY_LEFT_CONTROL)) position = Vector3f.add(position, new Vector3f(0, -moveSpeed, 0));
+		// Movement controls (first-person style), applied in place to avoid per-frame allocations
+		if (Input.isKeyDown(GLFW.GLFW_KEY_A)) position.addLocal(-z, 0, x);
+		if (Input.isKeyDown(GLFW.GLFW_KEY_D)) position.addLocal(z, 0, -x);
+		if (Input.isKeyDown(GLFW.GLFW_KEY_W)) position.addLocal(-x, 0, -z);
+		if (Input.isKeyDown(GLFW.GLFW_KEY_S)) position.addLocal(x, 0, z);
+		if (Input.isKeyDown(GLFW.GLFW_KEY_SPACE)) position.addLocal(0, moveSpeed, 0);
+		if (Input.isKeyDown(GLFW.GLFW_KEY_LEFT_CONTROL)) position.addLocal(0, -moveSpeed, 0);
 
 		// Mouse control for rotation
 		if (Input.isButtonDown(GLFW.GLFW_MOUSE_BUTTON_RIGHT)) {
@@ -71,11 +71,11 @@ public class Camera {
 			float dy = (float) (newMouseY - oldMouseY);
 
 			// Apply rotation based on mouse movement
-			rotation = Vector3f.add(rotation, new Vector3f(-dy * mouseSensitivity, -dx * mouseSensitivity, 0));
+			rotation.addLocal(-dy * mouseSensitivity, -dx * mouseSensitivity, 0);
 
 			// Clamp pitch to avoid camera flipping
-			if (rotation.getX() > 90) rotation = new Vector3f(90, rotation.getY(), rotation.getZ());
-			if (rotation.getX() < -90) rotation = new Vector3f(-90, rotation.getY(), rotation.getZ());
+			if (rotation.getX() > 90) rotation.setX(90);
+			if (rotation.getX() < -90) rotation.setX(-90);
 		}
 
 		// Store mouse position for the next frame
@@ -1,17 +1,29 @@
 package fr.florian.engine.objects;
 
-import fr.florian.engine.graphics.Material;
+import fr.florian.engine.graphics.Mesh;
+import fr.florian.engine.graphics.MeshUploadQueue;
 import fr.florian.engine.graphics.Renderer;
+import fr.florian.engine.maths.Frustum;
+import fr.florian.engine.maths.Matrix4f;
 import fr.florian.engine.maths.Vector3f;
+import fr.florian.engine.world.ChunkScheduler;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Represents a chunk in the voxel world, composed of a 3D array of blocks.
- * Supports asynchronous block generation and incremental updates.
+ * Represents a chunk in the voxel world, storing block IDs in a palette-compressed {@link ChunkStorage}.
+ * The chunk is split vertically into {@value #SECTIONS} cubic sections, each with its own mesh and
+ * {@link SectionVisibility}, so that the occlusion culling pass can skip sections individually.
+ * The blocks are provided asynchronously (loaded or generated by the world) through {@link #populate}.
+ * Meshing runs as jobs of the shared {@link ChunkScheduler}; finished meshes are handed
+ * to a {@link MeshUploadQueue} and uploaded by the render thread.
+ * The world assigns each chunk a level of detail from its distance to the camera; the chunk is remeshed
+ * at that level (see {@link ChunkMesher}) whenever it changes.
  */
 public class Chunk {
 
@@ -21,160 +33,504 @@ public class Chunk {
     /** Vertical depth of the chunk (Y dimension). */
     public static final int DEPTH = SIZE * 3;
 
-    /** Number of threads used for parallel generation. */
-    private final int THREAD_COUNT = 8;
+    /** Height of a section (sections are cubes of {@link #SIZE} blocks). */
+    public static final int SECTION_SIZE = SIZE;
 
-    /** 3D array storing the blocks of this chunk. */
-    private final Block[][][] blocks = new Block[SIZE][DEPTH][SIZE];
+    /** Number of sections stacked in a chunk. */
+    public static final int SECTIONS = DEPTH / SECTION_SIZE;
 
-    /** Queue of block creation tasks for deferred execution. */
-    private final Queue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+    /** Palette-compressed storage of the block IDs of this chunk (empty until populated). */
+    private volatile ChunkStorage storage = new ChunkStorage(SIZE, DEPTH, SIZE);
 
-    /** Thread pool for parallel chunk generation. */
-    private final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+    /** Engine-wide scheduler running meshing jobs. */
+    private final ChunkScheduler scheduler;
 
-    /** Material used for the top layer (grass blocks). */
-    private final Material grassMaterial;
-
-    /** Material used for inner layers (dirt blocks). */
-    private final Material dirtMaterial;
+    /** Queue through which finished meshes are uploaded on the render thread. */
+    private final MeshUploadQueue uploadQueue;
 
     /** Position of this chunk in the world. */
     private Vector3f chunkPosition;
 
+    /** Model matrix translating chunk-local geometry to the chunk position. */
+    private final Matrix4f model;
+
+    /** Meshes of the visible faces of each section (sampling the block texture array), null for empty sections. */
+    private List<Mesh> meshes = emptyMeshes();
+
+    /** Which faces of each section see each other, updated whenever the blocks are meshed. */
+    private volatile long[] visibility = fullVisibility();
+
+    /** Last frame in which the occlusion culling pass visited each section (render thread only). */
+    private final int[] visitFrames = new int[SECTIONS];
+
+    /** Whether the blocks changed since the meshes were last built, or a rebuild was requested. */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /** Number of rebuilds requested through {@link #markDirty}, used to discard meshes built before the last one. */
+    private final AtomicInteger meshGeneration = new AtomicInteger();
+
+    /** Whether neighbours were linked, unlinked or generated since the last update. */
+    private final AtomicBoolean neighboursChanged = new AtomicBoolean();
+
+    /** Faces whose neighbour was generated when the current meshes were built, -1 without meshes (render thread only). */
+    private int meshedNeighbours = -1;
+
+    /** Level of detail the chunk should be meshed at (render thread only). */
+    private int lod;
+
+    /** Level of detail of the current meshes (render thread only). */
+    private int meshedLod;
+
+    /** Meshes restored from a cache, uploaded on the next update instead of remeshing. */
+    private volatile List<Mesh> cachedMeshes;
+
+    /** Value of {@link #meshedNeighbours} for the cached meshes. */
+    private volatile int cachedNeighbours;
+
+    /** Level of detail of the cached meshes. */
+    private volatile int cachedLod;
+
+    /** Value of {@link #meshGeneration} when the cached meshes were taken from the cache. */
+    private volatile int cachedGeneration;
+
+    /** Whether the blocks have been loaded or generated (set by a worker thread). */
+    private volatile boolean generated;
+
+    /** Whether the blocks differ from the saved copy on disk (or were never saved). */
+    private volatile boolean modified;
+
+    /** Whether the neighbours were told that the blocks of this chunk are populated (render thread only). */
+    private boolean populatedNotified;
+
+    /** Whether a meshing job is running or waiting for upload (render thread only). */
+    private boolean meshPending;
+
+    /** Whether the chunk has been destroyed; late meshes are then discarded. */
+    private volatile boolean destroyed;
+
+    /** Adjacent chunks, indexed by the {@link BlockFace} they touch (null when not loaded, render thread only). */
+    private final Chunk[] neighbours = new Chunk[BlockFace.VALUES.length];
+
     /**
-     * Initializes the chunk at the given world position and starts parallel generation.
+     * Initializes an empty chunk at the given world position.
      *
-     * @param position The world-space position of the chunk origin.
+     * @param position    The world-space position of the chunk origin.
+     * @param scheduler   The scheduler running meshing jobs.
+     * @param uploadQueue The queue used to upload the chunk meshes on the render thread.
      */
-    public Chunk(Vector3f position) {
+    public Chunk(Vector3f position, ChunkScheduler scheduler, MeshUploadQueue uploadQueue) {
         this.chunkPosition = position;
-        this.grassMaterial = new Material("/textures/grassblock.png");
-        this.dirtMaterial = new Material("/textures/dirtblock.png");
+        this.scheduler = scheduler;
+        this.uploadQueue = uploadQueue;
+        this.model = Matrix4f.translate(position);
+    }
 
-        for (int i = 0; i < THREAD_COUNT; i++) {
-            final int threadId = i;
-            executor.submit(() -> generateByX(threadId));
+    /**
+     * Installs the loaded or generated blocks of the chunk, then requests a mesh for this chunk
+     * and its neighbours. Called once, from a worker thread.
+     *
+     * @param blocks   The block storage of the chunk.
+     * @param modified True if the blocks are not saved on disk yet (freshly generated).
+     */
+    public void populate(ChunkStorage blocks, boolean modified) {
+        populate(blocks, modified, null, -1, 0, 0);
+    }
+
+    /**
+     * Installs the blocks of the chunk together with meshes built before it was unloaded.
+     * The meshes are uploaded as is, and only rebuilt if the neighbours differ from when they were built,
+     * or if {@link #markDirty} was called since they were taken from the cache.
+     * Called once, from a worker thread.
+     *
+     * @param blocks           The block storage of the chunk.
+     * @param modified         True if the blocks are not saved on disk yet.
+     * @param meshes           The meshes of the chunk (not uploaded), or null to build them.
+     * @param meshedNeighbours The faces whose neighbour was generated when the meshes were built.
+     * @param meshedLod        The level of detail of the meshes; they are rebuilt if the chunk needs another one.
+     * @param meshGeneration   The value of {@link #getMeshGeneration()} when the meshes were taken from the cache.
+     */
+    public void populate(ChunkStorage blocks, boolean modified, List<Mesh> meshes, int meshedNeighbours, int meshedLod,
+                         int meshGeneration) {
+        this.storage = blocks;
+        this.modified = modified;
+        if (meshes != null) {
+            // Cached meshes are not rebuilt, so the visibility is only computed here
+            visibility = SectionVisibility.compute(blocks);
         }
+        dirty.set(true);
+        this.cachedNeighbours = meshedNeighbours;
+        this.cachedLod = meshedLod;
+        this.cachedGeneration = meshGeneration;
+        this.cachedMeshes = meshes;
+        generated = true;
     }
 
     /**
-     * Generates a vertical slice of the chunk based on the X-axis (parallelized).
+     * Updates the chunk state: starts a meshing job on a worker thread if the chunk needs a new mesh.
+     * Once the chunk is populated, its neighbours are notified so that their border faces are remeshed.
+     * A change of neighbours only triggers a rebuild once every linked neighbour is generated, and only
+     * if the set of generated neighbours differs from the one the current meshes were built with.
+     * Must be called from the render thread.
      */
-    private void generateByX(int threadId) {
-        int chunkSize = SIZE / THREAD_COUNT;
-        int chunkStartX = threadId * chunkSize;
-        int chunkEndX = Math.min(chunkStartX + chunkSize, SIZE);
+    public void update() {
+        if (!generated) {
+            return;
+        }
+        if (!populatedNotified) {
+            // Border faces of the neighbours may have been hidden or revealed
+            populatedNotified = true;
+            for (Chunk neighbour : neighbours) {
+                if (neighbour != null) neighbour.neighboursChanged.set(true);
+            }
+        }
+        if (meshPending) {
+            return;
+        }
 
-        int chunkStartY = (int) chunkPosition.getZ();
-        int chunkEndY = chunkStartY + DEPTH;
+        List<Mesh> cached = cachedMeshes;
+        if (cached != null) {
+            cachedMeshes = null;
+            // Meshes built before a rebuild request (e.g. in another meshing mode) are never uploaded
+            if (cachedLod == lod && cachedGeneration == meshGeneration.get()) {
+                dirty.set(false);
+                meshPending = true;
+                int neighbourMask = cachedNeighbours;
+                int level = lod;
+                uploadQueue.submit(cached, uploaded -> onMeshesUploaded(uploaded, neighbourMask, level));
+                return;
+            }
+            // Built at another level of detail or outdated: the chunk is still dirty since it was populated, so it is remeshed
+        }
 
-        int chunkStartZ = 0;
-        int chunkEndZ = SIZE;
+        boolean remesh = dirty.getAndSet(false);
+        if (!neighboursPending() && neighboursChanged.getAndSet(false) && generatedNeighbours() != meshedNeighbours) {
+            remesh = true;
+        }
+        if (remesh) {
+            meshPending = true;
+            // The worker only sees this snapshot, since the neighbours are linked and unlinked on the render thread
+            Chunk[] meshedWith = snapshotGeneratedNeighbours();
+            int neighbourMask = maskOf(meshedWith);
+            int level = lod;
+            scheduler.submit(this, ChunkScheduler.JobType.MESHING, () -> {
+                visibility = SectionVisibility.compute(storage);
+                uploadQueue.submit(ChunkMesher.mesh(this, meshedWith, level), uploaded -> onMeshesUploaded(uploaded, neighbourMask, level));
+            });
+        }
+    }
 
-        for (int x = chunkStartX; x < chunkEndX; x++) {
-            for (int y = chunkStartY; y < chunkEndY; y++) {
-                for (int z = chunkStartZ; z < chunkEndZ; z++) {
-                    int finalX = x, finalY = y, finalZ = z;
-                    taskQueue.add(() -> createBlock(finalX, finalY, finalZ));
-                }
+    /**
+     * Returns the faces whose neighbour is loaded and generated, as a bit mask of {@link BlockFace} ordinals.
+     */
+    private int generatedNeighbours() {
+        int mask = 0;
+        for (BlockFace face : BlockFace.VALUES) {
+            Chunk neighbour = neighbours[face.ordinal()];
+            if (neighbour != null && neighbour.generated) {
+                mask |= 1 << face.ordinal();
             }
         }
+        return mask;
     }
 
     /**
-     * Alternative generation method using the Z-axis. (Unused by default)
+     * Returns a copy of the neighbours indexed by {@link BlockFace} ordinal, keeping only the generated ones.
      */
-    private void generateByZ(int threadId) {
-        int chunkSize = SIZE / THREAD_COUNT;
-        int chunkStartZ = threadId * chunkSize;
-        int chunkEndZ = Math.min(chunkStartZ + chunkSize, SIZE);
+    private Chunk[] snapshotGeneratedNeighbours() {
+        Chunk[] snapshot = new Chunk[neighbours.length];
+        for (int i = 0; i < neighbours.length; i++) {
+            Chunk neighbour = neighbours[i];
+            if (neighbour != null && neighbour.generated) {
+                snapshot[i] = neighbour;
+            }
+        }
+        return snapshot;
+    }
 
-        int chunkStartX = 0;
-        int chunkEndX = SIZE;
+    /**
+     * Returns the faces with a non-null neighbour in an array indexed by {@link BlockFace} ordinal, as a bit mask.
+     */
+    private static int maskOf(Chunk[] neighbours) {
+        int mask = 0;
+        for (int i = 0; i < neighbours.length; i++) {
+            if (neighbours[i] != null) mask |= 1 << i;
+        }
+        return mask;
+    }
 
-        int chunkStartY = (int) chunkPosition.getZ();
-        int chunkEndY = chunkStartY + DEPTH;
+    /**
+     * Returns true if a linked neighbour is still waiting for its blocks.
+     */
+    private boolean neighboursPending() {
+        for (Chunk neighbour : neighbours) {
+            if (neighbour != null && !neighbour.generated) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (int x = chunkStartX; x < chunkEndX; x++) {
-            for (int y = chunkStartY; y < chunkEndY; y++) {
-                for (int z = chunkStartZ; z < chunkEndZ; z++) {
-                    int finalX = x, finalY = y, finalZ = z;
-                    taskQueue.add(() -> createBlock(finalX, finalY, finalZ));
-                }
+    /**
+     * Replaces the chunk meshes with freshly uploaded ones. Called on the render thread.
+     */
+    private void onMeshesUploaded(List<Mesh> uploaded, int neighbourMask, int level) {
+        meshPending = false;
+        if (destroyed) {
+            for (Mesh mesh : uploaded) {
+                if (mesh != null) mesh.destroy();
             }
+            return;
         }
+
+        destroyMeshes();
+        meshes = uploaded;
+        meshedNeighbours = neighbourMask;
+        meshedLod = level;
     }
 
     /**
-     * Creates a block at the specified chunk coordinates and assigns the appropriate mesh.
+     * Renders the mesh of one section using the given renderer.
+     *
+     * @param renderer The renderer to draw the mesh.
+     * @param section  The section index, from the bottom one up.
      */
-    private void createBlock(int x, int y, int z) {
-        blocks[x][y][z] = new Block(
-                x * y * z,
-                new Vector3f(x, y, z),
-                new Vector3f(0, 0, 0),
-                new Vector3f(1, 1, 1),
-                (y == DEPTH - 1) ? Blocks.createCubeMesh(grassMaterial) : Blocks.createCubeMesh(dirtMaterial)
-        );
+    public void renderSection(Renderer renderer, int section) {
+        Mesh mesh = meshes.get(section);
+        if (mesh != null) {
+            renderer.renderMesh(mesh, model);
+        }
     }
 
     /**
-     * Updates the chunk state:
-     * - Executes a limited number of deferred block creation tasks.
-     * - Calls update on each block.
+     * Tests whether the bounding box of a section is at least partly inside a view frustum.
+     *
+     * @param frustum The camera frustum.
+     * @param section The section index, from the bottom one up.
+     * @return False if the section is entirely outside of the frustum.
      */
-    public void update() {
-        int maxTasksPerFrame = 1;
-        for (int i = 0; i < maxTasksPerFrame && !taskQueue.isEmpty(); i++) {
-            Runnable task = taskQueue.poll();
-            if (task != null) task.run();
-        }
-
-        for (int x = 0; x < SIZE; x++) {
-            for (int y = 0; y < DEPTH; y++) {
-                for (int z = 0; z < SIZE; z++) {
-                    if (blocks[x][y][z] != null) {
-                        blocks[x][y][z].update();
-                    }
-                }
-            }
+    public boolean isSectionInFrustum(Frustum frustum, int section) {
+        float x = chunkPosition.getX(), z = chunkPosition.getZ();
+        float y = chunkPosition.getY() + section * SECTION_SIZE;
+        return frustum.intersectsBox(x, y, z, x + SIZE, y + SECTION_SIZE, z + SIZE);
+    }
+
+    /**
+     * Returns true if a section has geometry to draw.
+     *
+     * @param section The section index, from the bottom one up.
+     * @return True if the section has a mesh.
+     */
+    public boolean hasSectionMesh(int section) {
+        return meshes.get(section) != null;
+    }
+
+    /**
+     * Returns which faces of a section see each other through non-opaque blocks.
+     * Sections of a chunk that is not generated yet are fully open.
+     *
+     * @param section The section index, from the bottom one up.
+     * @return The visibility bits, see {@link SectionVisibility}.
+     */
+    public long getVisibility(int section) {
+        return visibility[section];
+    }
+
+    /**
+     * Marks a section as visited by the occlusion culling pass of a frame. Must be called from the render thread.
+     *
+     * @param section The section index, from the bottom one up.
+     * @param frame   The number of the current frame.
+     * @return False if the section was already visited during this frame.
+     */
+    public boolean visit(int section, int frame) {
+        if (visitFrames[section] == frame) {
+            return false;
         }
+        visitFrames[section] = frame;
+        return true;
     }
 
     /**
-     * Renders all visible blocks in the chunk using the given renderer and camera.
+     * Returns true if a section was visited by the occlusion culling pass of a frame.
      *
-     * @param renderer The renderer to draw the mesh.
-     * @param camera   The current scene camera.
-     */
-    public void render(Renderer renderer, Camera camera) {
-        for (int x = 0; x < SIZE; x++) {
-            for (int y = 0; y < DEPTH; y++) {
-                for (int z = 0; z < SIZE; z++) {
-                    if (blocks[x][y][z] != null && isVisible(x, y, z)) {
-                        renderer.renderMesh(blocks[x][y][z], camera);
-                    }
-                }
-            }
+     * @param section The section index, from the bottom one up.
+     * @param frame   The number of the frame.
+     * @return True if {@link #visit} was called for the section during this frame.
+     */
+    public boolean isVisited(int section, int frame) {
+        return visitFrames[section] == frame;
+    }
+
+    /**
+     * Returns an empty mesh list, with one null entry per section.
+     */
+    private static List<Mesh> emptyMeshes() {
+        return new ArrayList<>(Collections.nCopies(SECTIONS, null));
+    }
+
+    /**
+     * Returns the visibility of a chunk whose sections are all open.
+     */
+    private static long[] fullVisibility() {
+        long[] visibility = new long[SECTIONS];
+        Arrays.fill(visibility, SectionVisibility.ALL);
+        return visibility;
+    }
+
+    /**
+     * Requests the chunk meshes to be rebuilt on the next update (e.g. after changing the meshing mode).
+     * Cached meshes waiting to be uploaded, or still being installed by {@link #populate}, are discarded.
+     * Must be called from the render thread.
+     */
+    public void markDirty() {
+        meshGeneration.incrementAndGet();
+        dirty.set(true);
+        cachedMeshes = null;
+    }
+
+    /** @return The number of rebuilds requested so far, to pass to {@link #populate} with cached meshes. */
+    public int getMeshGeneration() {
+        return meshGeneration.get();
+    }
+
+    /**
+     * Sets the level of detail of the chunk, requesting a rebuild on the next update if it changed.
+     * Must be called from the render thread.
+     *
+     * @param lod The level of detail, from 0 to {@link ChunkMesher#MAX_LOD}.
+     */
+    public void setLod(int lod) {
+        if (lod != this.lod) {
+            this.lod = lod;
+            dirty.set(true);
+        }
+    }
+
+    /** @return The level of detail the chunk should be meshed at. */
+    public int getLod() {
+        return lod;
+    }
+
+    /** @return The level of detail of the current meshes. */
+    public int getMeshedLod() {
+        return meshedLod;
+    }
+
+    /**
+     * Frees the GPU resources of the chunk meshes.
+     */
+    public void destroyMeshes() {
+        for (Mesh mesh : meshes) {
+            if (mesh != null) mesh.destroy();
         }
+        meshes = emptyMeshes();
+        meshedNeighbours = -1;
     }
 
     /**
-     * Determines whether a block is visible (i.e., on the edge or has an exposed face).
+     * Frees the chunk meshes, cancels its queued jobs and discards any mesh still being built.
+     * Must be called from the render thread.
+     */
+    public void destroy() {
+        destroyed = true;
+        scheduler.cancel(this);
+        destroyMeshes();
+    }
+
+    /**
+     * Returns the block ID at the given chunk coordinates.
      *
      * @param x Block X position in the chunk.
      * @param y Block Y position in the chunk.
      * @param z Block Z position in the chunk.
-     * @return True if the block should be rendered.
+     * @return The block ID (0 for air).
+     */
+    public int getBlock(int x, int y, int z) {
+        return storage.get(x, y, z);
+    }
+
+    /**
+     * Connects two adjacent chunks so that faces on their shared border are culled.
+     * Both chunks are remeshed once the other one is generated.
+     *
+     * @param face     The face of this chunk touching the other chunk.
+     * @param neighbour The adjacent chunk.
+     */
+    public void link(BlockFace face, Chunk neighbour) {
+        neighbours[face.ordinal()] = neighbour;
+        neighbour.neighbours[face.opposite().ordinal()] = this;
+        neighboursChanged.set(true);
+        neighbour.neighboursChanged.set(true);
+    }
+
+    /**
+     * Disconnects this chunk from all its neighbours (e.g. before unloading it).
+     * The neighbours are remeshed since their border faces become exposed.
      */
-    private boolean isVisible(int x, int y, int z) {
-        if (x == 0 || y == 0 || z == 0 || x == SIZE - 1 || y == DEPTH - 1 || z == SIZE - 1) {
-            return true;
+    public void unlink() {
+        for (BlockFace face : BlockFace.VALUES) {
+            Chunk neighbour = neighbours[face.ordinal()];
+            if (neighbour != null) {
+                neighbour.neighbours[face.opposite().ordinal()] = null;
+                neighbour.neighboursChanged.set(true);
+                neighbours[face.ordinal()] = null;
+            }
         }
+    }
+
+    /**
+     * Returns the adjacent chunk touching a face of this chunk. Must be called from the render thread.
+     *
+     * @param face The face of this chunk.
+     * @return The neighbouring chunk, or null if it is not loaded.
+     */
+    public Chunk getNeighbour(BlockFace face) {
+        return neighbours[face.ordinal()];
+    }
+
+    /** @return True once the chunk has been destroyed. */
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Returns true if the chunk meshes match its current blocks and neighbours, so they can be cached
+     * and reused when the chunk is loaded again. Must be called from the render thread.
+     *
+     * @return True if the meshes are up to date.
+     */
+    public boolean hasUpToDateMeshes() {
+        return meshedNeighbours >= 0 && !meshPending && cachedMeshes == null && !dirty.get()
+                && meshedNeighbours == generatedNeighbours() && meshedLod == lod;
+    }
+
+    /** @return The faces whose neighbour was generated when the current meshes were built, or -1 without meshes. */
+    public int getMeshedNeighbours() {
+        return meshedNeighbours;
+    }
+
+    /** @return The current meshes of the chunk, indexed by section (null for empty sections). */
+    public List<Mesh> getMeshes() {
+        return meshes;
+    }
+
+    /** @return The block storage of the chunk. */
+    public ChunkStorage getStorage() {
+        return storage;
+    }
+
+    /** @return True if the blocks differ from the saved copy on disk. */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /** @return True once the chunk blocks have been generated. */
+    public boolean isGenerated() {
+        return generated;
+    }
 
-        return blocks[x - 1][y][z] == null || blocks[x + 1][y][z] == null ||
-                blocks[x][y - 1][z] == null || blocks[x][y + 1][z] == null ||
-                blocks[x][y][z - 1] == null || blocks[x][y][z + 1] == null;
+    /** @return The world-space position of the chunk origin. */
+    public Vector3f getPosition() {
+        return chunkPosition;
     }
 }
@@ -0,0 +1,389 @@
+package fr.florian.engine.objects;
+
+import fr.florian.engine.graphics.InstancedMesh;
+import fr.florian.engine.graphics.Mesh;
+import fr.florian.engine.graphics.VertexFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the renderable geometry of a chunk, one mesh per {@link Chunk#SECTION_SIZE}-block high section.
+ * Only faces next to a non-opaque block are emitted, including across chunk borders when the
+ * neighbouring chunk is loaded. In {@link Mode#GREEDY} mode, coplanar adjacent faces of the same
+ * block type are merged into maximal rectangles. In {@link Mode#INSTANCED} mode, no faces are built:
+ * each block with a visible face becomes an instance of a shared cube, drawn in one call per section.
+ * Faces sample the block texture array, so a section is a single mesh whatever its block types.
+ * Face meshes use the {@link VertexFormat#PACKED packed} vertex format by default. Their vertices are in
+ * chunk-local coordinates, up to {@link Chunk#DEPTH} along Y, so they only fit the packed fields because the chunk
+ * dimensions are at most {@link VertexFormat#PACKED_MAX_COORDINATE}, which is checked when the class is loaded.
+ * Meshing only produces CPU-side data and can run on any thread; the neighbouring chunks are passed in,
+ * captured on the render thread, since they are linked and unlinked there.
+ *
+ * Distant chunks can be meshed at a coarser level of detail: at level {@code n}, the chunk is downsampled into
+ * cells of {@code 2^n} blocks per side, each cell taking the topmost block found in it (and being empty only if
+ * all its blocks are air), and the cells are meshed as large blocks with greedy merging, whatever the mode.
+ * Since a cell is filled as soon as one of its blocks is, a coarse mesh covers the fine one. Border faces of
+ * coarse cells are only culled when all the blocks behind them in the neighbouring chunk are opaque, which
+ * the neighbour fills at any level; the other border faces are kept as skirts, so no seam opens between
+ * chunks meshed at different levels.
+ */
+public class ChunkMesher {
+
+    /**
+     * Meshing strategy.
+     */
+    public enum Mode {
+        /** One quad per visible block face. */
+        NAIVE,
+
+        /** Visible faces merged into the largest possible quads. */
+        GREEDY,
+
+        /** One instance of a shared cube per block with a visible face. */
+        INSTANCED
+    }
+
+    /** Coarsest level of detail: one cell per section. */
+    public static final int MAX_LOD = Integer.numberOfTrailingZeros(Chunk.SECTION_SIZE);
+
+    static {
+        // Fail once at startup rather than on every face, on the worker threads, when the chunk grows too large
+        if (Math.max(Chunk.SIZE, Chunk.DEPTH) > VertexFormat.PACKED_MAX_COORDINATE) {
+            throw new IllegalStateException("Chunks of " + Chunk.SIZE + "x" + Chunk.DEPTH + "x" + Chunk.SIZE
+                    + " blocks do not fit the packed vertex format (at most " + VertexFormat.PACKED_MAX_COORDINATE + ")");
+        }
+    }
+
+    /** Section dimensions indexed by axis (0 = X, 1 = Y, 2 = Z). */
+    private static final int[] DIMENSIONS = {Chunk.SIZE, Chunk.SECTION_SIZE, Chunk.SIZE};
+
+    /** Meshing strategy used for new chunk meshes. */
+    private static volatile Mode mode = Mode.GREEDY;
+
+    /** Vertex format of new chunk face meshes. */
+    private static volatile VertexFormat vertexFormat = VertexFormat.PACKED;
+
+    /** Per-thread scratch buffers, reused from one chunk to the next. */
+    private static final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+    /**
+     * Scratch state of a meshing thread: the builder, the face mask and the downsampled cells.
+     */
+    private static final class Context {
+        final MeshBuilder builder = new MeshBuilder();
+        final int[] mask = new int[Chunk.SIZE * Chunk.SIZE];
+        final int[] position = new int[3];
+        final int[] size = new int[3];
+        final int[] cells = new int[Chunk.SIZE * Chunk.DEPTH * Chunk.SIZE];
+        final float[] instances = new float[Chunk.SIZE * Chunk.SECTION_SIZE * Chunk.SIZE * InstancedMesh.INSTANCE_FLOATS];
+
+        /** Generated neighbours of the chunk being meshed, indexed by {@link BlockFace} ordinal. */
+        Chunk[] neighbours;
+    }
+
+    /**
+     * Builds the meshes of the sections of a chunk, textured with the block texture array.
+     * Vertex positions are local to the chunk origin.
+     *
+     * @param chunk      The chunk to mesh.
+     * @param neighbours The generated neighbours of the chunk, indexed by {@link BlockFace} ordinal (null entries
+     *                   for faces without one), captured on the render thread.
+     * @return The meshes (not yet uploaded to the GPU) indexed by section, null for sections without visible faces.
+     */
+    public static List<Mesh> mesh(Chunk chunk, Chunk[] neighbours) {
+        return mesh(chunk, neighbours, 0);
+    }
+
+    /**
+     * Builds the meshes of the sections of a chunk at a level of detail, textured with the block texture array.
+     * Vertex positions are local to the chunk origin.
+     *
+     * @param chunk      The chunk to mesh.
+     * @param neighbours The generated neighbours of the chunk, indexed by {@link BlockFace} ordinal (null entries
+     *                   for faces without one), captured on the render thread.
+     * @param lod        The level of detail, from 0 (one cell per block) to {@link #MAX_LOD}.
+     * @return The meshes (not yet uploaded to the GPU) indexed by section, null for sections without visible faces.
+     * @throws IllegalArgumentException If the level of detail is out of range.
+     */
+    public static List<Mesh> mesh(Chunk chunk, Chunk[] neighbours, int lod) {
+        if (lod < 0 || lod > MAX_LOD) {
+            throw new IllegalArgumentException("Level of detail " + lod + " is not between 0 and " + MAX_LOD);
+        }
+        Context context = contexts.get();
+        context.neighbours = neighbours;
+        try {
+            return mesh(chunk, lod, context);
+        } finally {
+            // Not kept by the thread, so that unloaded chunks can be collected
+            context.neighbours = null;
+        }
+    }
+
+    /**
+     * Builds the meshes of the sections of a chunk with the scratch state of the current thread.
+     */
+    private static List<Mesh> mesh(Chunk chunk, int lod, Context context) {
+        Mode mode = ChunkMesher.mode;
+        boolean greedy = mode == Mode.GREEDY || lod > 0;
+        VertexFormat format = vertexFormat;
+        int step = 1 << lod;
+        if (lod > 0) {
+            downsample(chunk, step, context.cells);
+        }
+
+        List<Mesh> meshes = new ArrayList<>(Chunk.SECTIONS);
+        for (int section = 0; section < Chunk.SECTIONS; section++) {
+            if (mode == Mode.INSTANCED && lod == 0) {
+                meshes.add(meshInstances(chunk, section * Chunk.SECTION_SIZE, context));
+                continue;
+            }
+            context.builder.reset(format);
+            for (BlockFace face : BlockFace.VALUES) {
+                meshFace(chunk, face, section * Chunk.SECTION_SIZE, greedy, step, context);
+            }
+            meshes.add(context.builder.isEmpty() ? null : context.builder.build(Blocks.getMaterial()));
+        }
+        return meshes;
+    }
+
+    /**
+     * Emits all visible faces of one direction in a section, slice by slice along the face normal.
+     * With a step above 1, the faces of the downsampled cells are emitted, scaled to the cell size.
+     */
+    private static void meshFace(Chunk chunk, BlockFace face, int baseY, boolean greedy, int step, Context context) {
+        int n = face.getDx() != 0 ? 0 : face.getDy() != 0 ? 1 : 2;
+        int u = (n + 1) % 3;
+        int v = (n + 2) % 3;
+        int width = DIMENSIONS[u] / step;
+        int height = DIMENSIONS[v] / step;
+        int cellBaseY = baseY / step;
+
+        int[] mask = context.mask;
+        int[] position = context.position;
+        int[] size = context.size;
+
+        for (int slice = 0; slice < DIMENSIONS[n] / step; slice++) {
+            position[n] = slice;
+
+            // Build the mask of visible faces in this slice (block ID, or -1 when hidden)
+            for (int j = 0; j < height; j++) {
+                for (int i = 0; i < width; i++) {
+                    position[u] = i;
+                    position[v] = j;
+                    mask[j * width + i] = step == 1 ? visibleFace(chunk, context, face, position[0], baseY + position[1], position[2])
+                            : visibleCell(chunk, context, step, face, position[0], cellBaseY + position[1], position[2]);
+                }
+            }
+
+            // Consume the mask, merging runs of identical faces when greedy
+            for (int j = 0; j < height; j++) {
+                for (int i = 0; i < width; ) {
+                    int id = mask[j * width + i];
+                    if (id < 0) {
+                        i++;
+                        continue;
+                    }
+
+                    int w = 1;
+                    int h = 1;
+                    if (greedy) {
+                        while (i + w < width && mask[j * width + i + w] == id) {
+                            w++;
+                        }
+                        expand:
+                        while (j + h < height) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[(j + h) * width + i + k] != id) {
+                                    break expand;
+                                }
+                            }
+                            h++;
+                        }
+                    }
+
+                    position[u] = i;
+                    position[v] = j;
+                    size[n] = 1;
+                    size[u] = w;
+                    size[v] = h;
+
+                    context.builder.addFace(face, position[0] * step, baseY + position[1] * step, position[2] * step,
+                            size[0] * step, size[1] * step, size[2] * step, BlockRegistry.get(id).getTextureLayer(face));
+
+                    for (int dj = 0; dj < h; dj++) {
+                        for (int di = 0; di < w; di++) {
+                            mask[(j + dj) * width + i + di] = -1;
+                        }
+                    }
+                    i += w;
+                }
+            }
+        }
+    }
+
+    /**
+     * Downsamples a chunk into cells of {@code step} blocks per side, indexed by {@code (y * width + z) * width + x}.
+     * A cell holds the topmost non-air block found in it, or air if all its blocks are air.
+     */
+    private static void downsample(Chunk chunk, int step, int[] cells) {
+        int width = Chunk.SIZE / step;
+        int depth = Chunk.DEPTH / step;
+        for (int cy = 0; cy < depth; cy++) {
+            for (int cz = 0; cz < width; cz++) {
+                for (int cx = 0; cx < width; cx++) {
+                    int id = 0;
+                    search:
+                    for (int y = (cy + 1) * step - 1; y >= cy * step; y--) {
+                        for (int z = cz * step; z < (cz + 1) * step; z++) {
+                            for (int x = cx * step; x < (cx + 1) * step; x++) {
+                                int block = chunk.getBlock(x, y, z);
+                                if (!BlockRegistry.get(block).isAir()) {
+                                    id = block;
+                                    break search;
+                                }
+                            }
+                        }
+                    }
+                    cells[(cy * width + cz) * width + cx] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the block ID of a downsampled cell owning a visible face, or -1 if the face is hidden or the cell is air.
+     * On the chunk border, the face is hidden only if every block of the neighbouring chunk it touches is opaque.
+     */
+    private static int visibleCell(Chunk chunk, Context context, int step, BlockFace face, int x, int y, int z) {
+        int[] cells = context.cells;
+        int width = Chunk.SIZE / step;
+        int id = cells[(y * width + z) * width + x];
+        if (BlockRegistry.get(id).isAir()) {
+            return -1;
+        }
+
+        int nx = x + face.getDx();
+        int ny = y + face.getDy();
+        int nz = z + face.getDz();
+        if (nx >= 0 && ny >= 0 && nz >= 0 && nx < width && ny < Chunk.DEPTH / step && nz < width) {
+            return BlockRegistry.get(cells[(ny * width + nz) * width + nx]).isOpaque() ? -1 : id;
+        }
+
+        // The face lies on the chunk border: look at the full detail blocks of the adjacent chunk, if generated
+        Chunk neighbour = context.neighbours[face.ordinal()];
+        if (neighbour == null) {
+            return id;
+        }
+        int minX = face.getDx() != 0 ? (face.getDx() > 0 ? 0 : Chunk.SIZE - 1) : x * step;
+        int minY = face.getDy() != 0 ? (face.getDy() > 0 ? 0 : Chunk.DEPTH - 1) : y * step;
+        int minZ = face.getDz() != 0 ? (face.getDz() > 0 ? 0 : Chunk.SIZE - 1) : z * step;
+        int maxX = face.getDx() != 0 ? minX + 1 : minX + step;
+        int maxY = face.getDy() != 0 ? minY + 1 : minY + step;
+        int maxZ = face.getDz() != 0 ? minZ + 1 : minZ + step;
+        for (int by = minY; by < maxY; by++) {
+            for (int bz = minZ; bz < maxZ; bz++) {
+                for (int bx = minX; bx < maxX; bx++) {
+                    if (!BlockRegistry.get(neighbour.getBlock(bx, by, bz)).isOpaque()) {
+                        return id;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the instances of the blocks of a section that have at least one visible face.
+     *
+     * @return The instanced mesh, or null if no block is visible.
+     */
+    private static Mesh meshInstances(Chunk chunk, int baseY, Context context) {
+        float[] instances = context.instances;
+        int count = 0;
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                for (int y = baseY; y < baseY + Chunk.SECTION_SIZE; y++) {
+                    int id = -1;
+                    for (BlockFace face : BlockFace.VALUES) {
+                        if ((id = visibleFace(chunk, context, face, x, y, z)) >= 0) {
+                            break;
+                        }
+                    }
+                    if (id < 0) {
+                        continue;
+                    }
+
+                    BlockType type = BlockRegistry.get(id);
+                    int offset = count++ * InstancedMesh.INSTANCE_FLOATS;
+                    instances[offset] = x;
+                    instances[offset + 1] = y;
+                    instances[offset + 2] = z;
+                    for (BlockFace face : BlockFace.VALUES) {
+                        instances[offset + 3 + face.ordinal()] = type.getTextureLayer(face);
+                    }
+                }
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        return new InstancedMesh(Blocks.getInstanceCube(), Arrays.copyOf(instances, count * InstancedMesh.INSTANCE_FLOATS),
+                Blocks.getMaterial());
+    }
+
+    /**
+     * Returns the block ID owning a visible face, or -1 if the face is hidden or the block is air.
+     */
+    private static int visibleFace(Chunk chunk, Context context, BlockFace face, int x, int y, int z) {
+        int id = chunk.getBlock(x, y, z);
+        if (BlockRegistry.get(id).isAir()) {
+            return -1;
+        }
+
+        int nx = x + face.getDx();
+        int ny = y + face.getDy();
+        int nz = z + face.getDz();
+        Chunk owner = chunk;
+        if (nx < 0 || ny < 0 || nz < 0 || nx >= Chunk.SIZE || ny >= Chunk.DEPTH || nz >= Chunk.SIZE) {
+            // The face lies on the chunk border: look into the adjacent chunk, if generated
+            owner = context.neighbours[face.ordinal()];
+            if (owner == null) {
+                return id;
+            }
+            nx = Math.floorMod(nx, Chunk.SIZE);
+            ny = Math.floorMod(ny, Chunk.DEPTH);
+            nz = Math.floorMod(nz, Chunk.SIZE);
+        }
+        return BlockRegistry.get(owner.getBlock(nx, ny, nz)).isOpaque() ? -1 : id;
+    }
+
+    /** @return The current meshing strategy. */
+    public static Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the meshing strategy used for subsequent meshes.
+     *
+     * @param mode The new strategy.
+     */
+    public static void setMode(Mode mode) {
+        ChunkMesher.mode = mode;
+    }
+
+    /** @return The vertex format of new chunk face meshes. */
+    public static VertexFormat getVertexFormat() {
+        return vertexFormat;
+    }
+
+    /**
+     * Sets the vertex format used for subsequent face meshes (instanced meshes are not affected).
+     *
+     * @param vertexFormat The new vertex format.
+     */
+    public static void setVertexFormat(VertexFormat vertexFormat) {
+        ChunkMesher.vertexFormat = vertexFormat;
+    }
+}
@@ -0,0 +1,367 @@
+package fr.florian.engine.objects;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact voxel storage for a chunk, based on a palette of block IDs.
+ * Each voxel only stores an index into the palette, bit-packed into a long array.
+ * The index width grows (1, 2, 4, 8 then 16 bits) as new block IDs are added to the palette.
+ *
+ * Voxels are laid out column by column: Y varies fastest, then Z, then X.
+ * This class is not thread-safe: a storage must only be written by one thread at a time.
+ */
+public class ChunkStorage {
+
+    /** Maximum number of bits used per voxel index. */
+    public static final int MAX_BITS = 16;
+
+    /** Size of the storage along the X axis. */
+    private final int sizeX;
+
+    /** Size of the storage along the Y axis. */
+    private final int sizeY;
+
+    /** Size of the storage along the Z axis. */
+    private final int sizeZ;
+
+    /** Total number of voxels stored. */
+    private final int volume;
+
+    /** Palette mapping a local index to a block ID. */
+    private int[] palette;
+
+    /** Number of used entries in the palette. */
+    private int paletteSize;
+
+    /** Number of bits used per voxel index (always a power of two). */
+    private int bits;
+
+    /** Bit-packed palette indices, {@code 64 / bits} entries per long. */
+    private long[] data;
+
+    /**
+     * Creates a storage filled with block ID 0 (air).
+     *
+     * @param sizeX Size along the X axis.
+     * @param sizeY Size along the Y axis.
+     * @param sizeZ Size along the Z axis.
+     */
+    public ChunkStorage(int sizeX, int sizeY, int sizeZ) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.volume = sizeX * sizeY * sizeZ;
+        this.palette = new int[2];
+        this.paletteSize = 1;
+        this.bits = 1;
+        this.data = new long[dataLength(volume, bits)];
+    }
+
+    /**
+     * Returns the block ID stored at the given local coordinates.
+     *
+     * @param x Local X coordinate.
+     * @param y Local Y coordinate.
+     * @param z Local Z coordinate.
+     * @return The block ID.
+     */
+    public int get(int x, int y, int z) {
+        return palette[getIndex(index(x, y, z))];
+    }
+
+    /**
+     * Stores a block ID at the given local coordinates, growing the palette if needed.
+     *
+     * @param x  Local X coordinate.
+     * @param y  Local Y coordinate.
+     * @param z  Local Z coordinate.
+     * @param id The block ID to store.
+     */
+    public void set(int x, int y, int z, int id) {
+        setIndex(index(x, y, z), paletteIndex(id));
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #write(ByteBuffer)}.
+     *
+     * @return The serialized size in bytes.
+     */
+    public int getSerializedSize() {
+        return 1 + Integer.BYTES + paletteSize * Integer.BYTES + data.length * Long.BYTES;
+    }
+
+    /**
+     * Serializes the storage: bits per voxel (byte), palette size (int), palette entries (ints)
+     * and the packed index data (longs).
+     *
+     * @param buffer The destination buffer, with at least {@link #getSerializedSize()} bytes remaining.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.put((byte) bits);
+        buffer.putInt(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            buffer.putInt(palette[i]);
+        }
+        for (long value : data) {
+            buffer.putLong(value);
+        }
+    }
+
+    /**
+     * Deserializes a storage written by {@link #write(ByteBuffer)}.
+     *
+     * @param buffer The source buffer.
+     * @param sizeX  Size along the X axis.
+     * @param sizeY  Size along the Y axis.
+     * @param sizeZ  Size along the Z axis.
+     * @return The restored storage.
+     * @throws IllegalArgumentException If the data is not a valid storage of this size or holds an unknown block ID.
+     */
+    public static ChunkStorage read(ByteBuffer buffer, int sizeX, int sizeY, int sizeZ) {
+        ChunkStorage storage = new ChunkStorage(sizeX, sizeY, sizeZ);
+        int bits = buffer.get();
+        int paletteSize = buffer.getInt();
+        if (paletteSize < 1 || paletteSize > (1 << MAX_BITS) || bits != bitsFor(paletteSize)) {
+            throw new IllegalArgumentException("Corrupted chunk data (bits=" + bits + ", palette=" + paletteSize + ")");
+        }
+
+        storage.bits = bits;
+        storage.paletteSize = paletteSize;
+        storage.palette = new int[Math.max(2, Integer.highestOneBit(paletteSize - 1) << 1)];
+        for (int i = 0; i < paletteSize; i++) {
+            storage.palette[i] = buffer.getInt();
+            if (!BlockRegistry.isRegistered(storage.palette[i])) {
+                throw new IllegalArgumentException("Corrupted chunk data (unknown block ID " + storage.palette[i] + ")");
+            }
+        }
+        storage.data = new long[dataLength(storage.volume, bits)];
+        for (int i = 0; i < storage.data.length; i++) {
+            storage.data[i] = buffer.getLong();
+        }
+        for (int voxel = 0; voxel < storage.volume; voxel++) {
+            if (storage.getIndex(voxel) >= paletteSize) {
+                throw new IllegalArgumentException("Corrupted chunk data (palette index out of range at voxel " + voxel + ")");
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Unpacks the palette index of every voxel, in storage order (Y fastest, then Z, then X).
+     *
+     * @param dest The destination array, of at least {@link #getVolume()} entries.
+     */
+    public void getIndices(int[] dest) {
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        int voxel = 0;
+        for (long value : data) {
+            for (int i = 0; i < perLong && voxel < volume; i++) {
+                dest[voxel++] = (int) ((value >>> (i * bits)) & mask);
+            }
+        }
+    }
+
+    /**
+     * Builds a storage from a palette and the palette index of every voxel.
+     *
+     * @param sizeX       Size along the X axis.
+     * @param sizeY       Size along the Y axis.
+     * @param sizeZ       Size along the Z axis.
+     * @param palette     The block IDs of the palette.
+     * @param paletteSize The number of used palette entries.
+     * @param indices     The palette index of every voxel, in storage order (Y fastest, then Z, then X).
+     * @return The storage.
+     * @throws IllegalArgumentException If the palette size is invalid, the palette holds an unknown block ID
+     *                                  or an index is outside of the palette.
+     */
+    public static ChunkStorage fromIndices(int sizeX, int sizeY, int sizeZ, int[] palette, int paletteSize, int[] indices) {
+        ChunkStorage storage = new ChunkStorage(sizeX, sizeY, sizeZ);
+        if (paletteSize < 1 || paletteSize > (1 << MAX_BITS)) {
+            throw new IllegalArgumentException("Invalid palette size: " + paletteSize);
+        }
+        for (int i = 0; i < paletteSize; i++) {
+            if (!BlockRegistry.isRegistered(palette[i])) {
+                throw new IllegalArgumentException("Unknown block ID in palette: " + palette[i]);
+            }
+        }
+        int bits = bitsFor(paletteSize);
+
+        storage.bits = bits;
+        storage.paletteSize = paletteSize;
+        storage.palette = Arrays.copyOf(palette, Math.max(2, 1 << (32 - Integer.numberOfLeadingZeros(paletteSize - 1))));
+        storage.data = new long[dataLength(storage.volume, bits)];
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        int voxel = 0;
+        for (int slot = 0; slot < storage.data.length; slot++) {
+            long value = 0;
+            for (int i = 0; i < perLong && voxel < storage.volume; i++) {
+                int index = indices[voxel];
+                if (index < 0 || index >= paletteSize) {
+                    throw new IllegalArgumentException("Palette index " + index + " out of range at voxel " + voxel);
+                }
+                value |= (index & mask) << (i * bits);
+                voxel++;
+            }
+            storage.data[slot] = value;
+        }
+        return storage;
+    }
+
+    /**
+     * Stores the same block ID in a vertical run of voxels of one column.
+     * Faster than repeated {@link #set} calls since the palette is only looked up once.
+     *
+     * @param x     Local X coordinate.
+     * @param z     Local Z coordinate.
+     * @param fromY First Y coordinate (inclusive).
+     * @param toY   Last Y coordinate (exclusive).
+     * @param id    The block ID to store.
+     */
+    public void fillColumn(int x, int z, int fromY, int toY, int id) {
+        if (fromY >= toY) {
+            return;
+        }
+        int value = paletteIndex(id);
+        int start = index(x, fromY, z);
+        for (int i = start; i < start + (toY - fromY); i++) {
+            setIndex(i, value);
+        }
+    }
+
+    /**
+     * Computes the flat voxel index of the given local coordinates.
+     */
+    private int index(int x, int y, int z) {
+        return (x * sizeZ + z) * sizeY + y;
+    }
+
+    /**
+     * Reads the palette index stored for a voxel.
+     */
+    private int getIndex(int voxel) {
+        int perLong = 64 / bits;
+        int shift = (voxel % perLong) * bits;
+        return (int) ((data[voxel / perLong] >>> shift) & ((1L << bits) - 1));
+    }
+
+    /**
+     * Writes the palette index stored for a voxel.
+     */
+    private void setIndex(int voxel, int value) {
+        int perLong = 64 / bits;
+        int slot = voxel / perLong;
+        int shift = (voxel % perLong) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        data[slot] = (data[slot] & ~mask) | (((long) value << shift) & mask);
+    }
+
+    /**
+     * Returns the palette index of a block ID, adding it to the palette if it is not present yet.
+     */
+    private int paletteIndex(int id) {
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == id) {
+                return i;
+            }
+        }
+
+        if (paletteSize == (1 << bits)) {
+            if (bits == MAX_BITS) {
+                throw new IllegalStateException("Chunk palette is full (" + paletteSize + " block IDs)");
+            }
+            resize(bits * 2);
+        }
+
+        if (paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[paletteSize] = id;
+        return paletteSize++;
+    }
+
+    /**
+     * Repacks every voxel index with a new bit width.
+     *
+     * @param newBits The new number of bits per voxel.
+     */
+    private void resize(int newBits) {
+        long[] oldData = data;
+        int oldBits = bits;
+        int oldPerLong = 64 / oldBits;
+        long oldMask = (1L << oldBits) - 1;
+
+        bits = newBits;
+        data = new long[dataLength(volume, newBits)];
+        for (int i = 0; i < volume; i++) {
+            int value = (int) ((oldData[i / oldPerLong] >>> ((i % oldPerLong) * oldBits)) & oldMask);
+            setIndex(i, value);
+        }
+    }
+
+    /**
+     * Returns the smallest bit width (1, 2, 4, 8 or 16) able to index a palette of the given size.
+     */
+    private static int bitsFor(int paletteSize) {
+        int bits = 1;
+        while ((1 << bits) < paletteSize) {
+            bits *= 2;
+        }
+        return bits;
+    }
+
+    /**
+     * Computes the number of longs needed to store a volume at a given bit width.
+     */
+    private static int dataLength(int volume, int bits) {
+        int perLong = 64 / bits;
+        return (volume + perLong - 1) / perLong;
+    }
+
+    /** @return The size along the X axis. */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    /** @return The size along the Y axis. */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /** @return The size along the Z axis. */
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    /** @return The total number of voxels. */
+    public int getVolume() {
+        return volume;
+    }
+
+    /**
+     * Returns the block ID of a palette entry.
+     *
+     * @param index The palette index (below {@link #getPaletteSize()}).
+     * @return The block ID.
+     */
+    public int getPaletteId(int index) {
+        return palette[index];
+    }
+
+    /** @return The number of distinct block IDs in the palette. */
+    public int getPaletteSize() {
+        return paletteSize;
+    }
+
+    /** @return The number of bits currently used per voxel. */
+    public int getBits() {
+        return bits;
+    }
+
+    /** @return The approximate memory used by the palette and index data, in bytes. */
+    public int getSizeInBytes() {
+        return palette.length * Integer.BYTES + data.length * Long.BYTES;
+    }
+}
@@ -3,108 +3,226 @@ package fr.florian.engine.objects;
 import fr.florian.engine.graphics.Material;
 import fr.florian.engine.graphics.Mesh;
 import fr.florian.engine.graphics.Vertex;
-import fr.florian.engine.maths.Vector3f;
+import fr.florian.engine.graphics.VertexFormat;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Utility class for building meshes dynamically from block faces.
- * Used in chunk generation to assemble only the visible faces of blocks.
+ * Used in chunk meshing to assemble only the visible faces of blocks.
+ * Faces can span several blocks: the texture is then repeated once per block.
+ * Each face carries the layer of its texture in the block texture array.
+ *
+ * Vertices are written directly into growable primitive arrays using the interleaved layout
+ * of {@link Mesh}, so adding faces does not allocate. A builder can be reused with {@link #reset()}.
+ * Builders can also write {@link VertexFormat#PACKED packed} vertices, for block-aligned meshes whose
+ * coordinates fit the packed format.
  */
 public class MeshBuilder {
 
-    /** List of vertices that make up the mesh. */
-    private final List<Vertex> vertices = new ArrayList<>();
+    /** Unit cube corner positions, 4 vertices per face in {@link BlockFace} order (x, y, z). */
+    private static final float[] CUBE_POSITIONS = new float[24 * 3];
 
-    /** List of indices for rendering triangles from the vertex list. */
-    private final List<Integer> indices = new ArrayList<>();
+    /** Unit cube texture coordinates, 4 vertices per face in {@link BlockFace} order (u, v). */
+    private static final float[] CUBE_UVS = new float[24 * 2];
 
-    /** Running index used for correctly indexing vertex data. */
-    private int index = 0;
+    static {
+        Vertex[] cube = Blocks.createCubeVertices();
+        for (int i = 0; i < cube.length; i++) {
+            CUBE_POSITIONS[i * 3] = cube[i].getPosition().getX();
+            CUBE_POSITIONS[i * 3 + 1] = cube[i].getPosition().getY();
+            CUBE_POSITIONS[i * 3 + 2] = cube[i].getPosition().getZ();
+            CUBE_UVS[i * 2] = cube[i].getTextureCoord().getX();
+            CUBE_UVS[i * 2 + 1] = cube[i].getTextureCoord().getY();
+        }
+    }
+
+    /** Layout of the vertices written by the builder. */
+    private VertexFormat format = VertexFormat.FLOAT;
+
+    /** Interleaved vertex data ({@link Mesh#VERTEX_FLOATS} floats per vertex), in float format. */
+    private float[] vertices = new float[64 * Mesh.VERTEX_FLOATS];
+
+    /** Packed vertex data ({@link VertexFormat#PACKED_INTS} ints per vertex), in packed format. */
+    private int[] packedVertices = new int[64 * VertexFormat.PACKED_INTS];
+
+    /** Triangle indices into the vertex data. */
+    private int[] indices = new int[96];
+
+    /** Number of vertices written so far. */
+    private int vertexCount = 0;
+
+    /** Number of indices written so far. */
+    private int indexCount = 0;
 
     /**
-     * Adds the top face of a block to the mesh at the given position.
+     * Adds the top face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addTopFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{0, 1, 2, 2, 3, 0});
+    public void addTopFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.TOP, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Adds the bottom face of a block to the mesh at the given position.
+     * Adds the bottom face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addBottomFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{4, 5, 6, 6, 7, 4});
+    public void addBottomFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.BOTTOM, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Adds the right face of a block to the mesh at the given position.
+     * Adds the right face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addRightFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{8, 9, 10, 10, 11, 8});
+    public void addRightFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.RIGHT, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Adds the left face of a block to the mesh at the given position.
+     * Adds the left face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addLeftFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{12, 13, 14, 14, 15, 12});
+    public void addLeftFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.LEFT, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Adds the front face of a block to the mesh at the given position.
+     * Adds the front face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addFrontFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{16, 17, 18, 18, 19, 16});
+    public void addFrontFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.FRONT, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Adds the back face of a block to the mesh at the given position.
+     * Adds the back face of a block to the mesh at the given position, with the given texture layer.
      */
-    public void addBackFace(Block block, int x, int y, int z) {
-        addFace(block, x, y, z, new int[]{20, 21, 22, 22, 23, 20});
+    public void addBackFace(int x, int y, int z, int layer) {
+        addFace(BlockFace.BACK, x, y, z, 1, 1, 1, layer);
     }
 
     /**
-     * Internal method to add a block face to the mesh.
+     * Adds a face covering a box of blocks to the mesh.
+     * The size along the face normal must be 1; the other two sizes give the extent of the quad.
      *
-     * @param block       The block whose face is being added.
-     * @param x           Block's X position in the world.
-     * @param y           Block's Y position in the world.
-     * @param z           Block's Z position in the world.
-     * @param faceIndices Indices defining the face's triangles.
+     * @param face  The face direction.
+     * @param x     X position of the box's minimum corner.
+     * @param y     Y position of the box's minimum corner.
+     * @param z     Z position of the box's minimum corner.
+     * @param sizeX Size of the box along X.
+     * @param sizeY Size of the box along Y.
+     * @param sizeZ Size of the box along Z.
+     * @param layer Layer of the face texture in the texture array.
+     * @throws IllegalArgumentException If the builder writes packed vertices and the face does not fit the format.
      */
-    private void addFace(Block block, int x, int y, int z, int[] faceIndices) {
-        // Add indices (offset by current index)
-        for (int i = 0; i < faceIndices.length; i++) {
-            indices.add(index + faceIndices[i]);
+    public void addFace(BlockFace face, int x, int y, int z, int sizeX, int sizeY, int sizeZ, int layer) {
+        if (format == VertexFormat.PACKED && (x < 0 || y < 0 || z < 0
+                || Math.max(x + sizeX, Math.max(y + sizeY, z + sizeZ)) > VertexFormat.PACKED_MAX_COORDINATE
+                || layer > VertexFormat.PACKED_MAX_LAYER)) {
+            throw new IllegalArgumentException("Face at " + x + ", " + y + ", " + z + " does not fit the packed vertex format");
         }
+        ensureCapacity(4, 6);
 
-        // Add translated vertices
-        for (Vertex vertex : block.getMesh().getVertices()) {
-            vertices.add(new Vertex(
-                    new Vector3f(
-                            vertex.getPosition().getX() + x,
-                            vertex.getPosition().getY() + y,
-                            vertex.getPosition().getZ() + z),
-                    vertex.getTextureCoord()
-            ));
+        // Add indices (offset by current vertex count)
+        int first = face.ordinal() * 4;
+        for (int i = face.ordinal() * 6; i < face.ordinal() * 6 + 6; i++) {
+            indices[indexCount++] = vertexCount + Blocks.CUBE_INDICES[i] - first;
         }
 
-        // Update base index for next face
-        index += block.getMesh().getVertices().length;
+        // Add the 4 corners of the face, stretched over the box
+        int uSize = face.getDx() != 0 ? sizeZ : sizeX;
+        int vSize = face.getDy() != 0 ? sizeZ : sizeY;
+        if (format == VertexFormat.PACKED) {
+            int offset = vertexCount * VertexFormat.PACKED_INTS;
+            for (int i = first; i < first + 4; i++) {
+                packedVertices[offset++] = VertexFormat.packVertex(
+                        x + (int) CUBE_POSITIONS[i * 3] * sizeX,
+                        y + (int) CUBE_POSITIONS[i * 3 + 1] * sizeY,
+                        z + (int) CUBE_POSITIONS[i * 3 + 2] * sizeZ,
+                        (int) CUBE_UVS[i * 2] * uSize,
+                        (int) CUBE_UVS[i * 2 + 1] * vSize,
+                        face.ordinal(), 0);
+                packedVertices[offset++] = VertexFormat.packLayer(layer);
+            }
+            vertexCount += 4;
+            return;
+        }
+
+        int offset = vertexCount * Mesh.VERTEX_FLOATS;
+        for (int i = first; i < first + 4; i++) {
+            vertices[offset++] = x + CUBE_POSITIONS[i * 3] * sizeX;
+            vertices[offset++] = y + CUBE_POSITIONS[i * 3 + 1] * sizeY;
+            vertices[offset++] = z + CUBE_POSITIONS[i * 3 + 2] * sizeZ;
+            vertices[offset++] = CUBE_UVS[i * 2] * uSize;
+            vertices[offset++] = CUBE_UVS[i * 2 + 1] * vSize;
+            vertices[offset++] = layer;
+        }
+        vertexCount += 4;
     }
 
     /**
-     * Finalizes the mesh and returns a complete Mesh object with default material.
+     * Grows the backing arrays so that the given number of vertices and indices can be added.
+     */
+    private void ensureCapacity(int extraVertices, int extraIndices) {
+        if (format == VertexFormat.PACKED) {
+            int requiredInts = (vertexCount + extraVertices) * VertexFormat.PACKED_INTS;
+            if (requiredInts > packedVertices.length) {
+                packedVertices = Arrays.copyOf(packedVertices, Math.max(requiredInts, packedVertices.length * 2));
+            }
+        } else {
+            int requiredFloats = (vertexCount + extraVertices) * Mesh.VERTEX_FLOATS;
+            if (requiredFloats > vertices.length) {
+                vertices = Arrays.copyOf(vertices, Math.max(requiredFloats, vertices.length * 2));
+            }
+        }
+        if (indexCount + extraIndices > indices.length) {
+            indices = Arrays.copyOf(indices, Math.max(indexCount + extraIndices, indices.length * 2));
+        }
+    }
+
+    /**
+     * Clears the builder so it can be reused for another mesh, keeping its allocated arrays.
+     */
+    public void reset() {
+        vertexCount = 0;
+        indexCount = 0;
+    }
+
+    /**
+     * Clears the builder like {@link #reset()}, and sets the layout of the vertices of the next mesh.
      *
+     * @param format The vertex format.
+     */
+    public void reset(VertexFormat format) {
+        reset();
+        this.format = format;
+    }
+
+    /** @return The number of vertices added so far. */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /** @return True if no face has been added. */
+    public boolean isEmpty() {
+        return vertexCount == 0;
+    }
+
+    /**
+     * Finalizes the mesh and returns a complete Mesh object.
+     * The data is copied, so the builder can be reset and reused afterwards.
+     *
+     * @param material The material applied to every face of the mesh.
      * @return The generated mesh with vertices, indices, and texture.
      */
-    public Mesh build() {
+    public Mesh build(Material material) {
+        if (format == VertexFormat.PACKED) {
+            return new Mesh(
+                    Arrays.copyOf(packedVertices, vertexCount * VertexFormat.PACKED_INTS),
+                    Arrays.copyOf(indices, indexCount),
+                    material
+            );
+        }
         return new Mesh(
-                vertices.toArray(new Vertex[0]),
-                indices.stream().mapToInt(i -> i).toArray(),
-                new Material("/textures/default.png")
+                Arrays.copyOf(vertices, vertexCount * Mesh.VERTEX_FLOATS),
+                Arrays.copyOf(indices, indexCount),
+                material
         );
     }
 }
@@ -0,0 +1,161 @@
+package fr.florian.engine.objects;
+
+import java.util.Arrays;
+
+/**
+ * Computes which faces of each chunk section can see each other through non-opaque blocks.
+ *
+ * For every section, the non-opaque voxels are flood-filled into connected regions; two faces are
+ * connected when one region touches both. The result is a 6 x 6 bit matrix indexed by {@link BlockFace}
+ * ordinals, stored in a long (bit {@code from * 6 + to}). It is used by the occlusion culling pass to
+ * only walk from a section to the next through openings, so caves enclosed by stone are never drawn.
+ */
+public final class SectionVisibility {
+
+    /** Visibility of a section where every face sees every other face (e.g. only air). */
+    public static final long ALL = (1L << (BlockFace.VALUES.length * BlockFace.VALUES.length)) - 1;
+
+    /** Visibility of a section where no face sees another one (e.g. only stone). */
+    public static final long NONE = 0;
+
+    /** Number of voxels per section. */
+    private static final int VOLUME = Chunk.SIZE * Chunk.SECTION_SIZE * Chunk.SIZE;
+
+    /** Per-thread scratch buffers, reused from one chunk to the next. */
+    private static final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+    /**
+     * Scratch state of a computing thread.
+     */
+    private static final class Context {
+        final int[] indices = new int[Chunk.SIZE * Chunk.DEPTH * Chunk.SIZE];
+        boolean[] opaque = new boolean[16];
+        final boolean[] visited = new boolean[VOLUME];
+        final int[] stack = new int[VOLUME];
+    }
+
+    private SectionVisibility() {
+    }
+
+    /**
+     * Computes the visibility of every section of a chunk.
+     * Only depends on the blocks of the chunk, and can run on any thread.
+     *
+     * @param storage The blocks of the chunk.
+     * @return The visibility of each section, from the bottom one up.
+     */
+    public static long[] compute(ChunkStorage storage) {
+        Context context = contexts.get();
+        int paletteSize = storage.getPaletteSize();
+        if (context.opaque.length < paletteSize) {
+            context.opaque = new boolean[paletteSize];
+        }
+        boolean anyOpaque = false;
+        for (int i = 0; i < paletteSize; i++) {
+            context.opaque[i] = BlockRegistry.get(storage.getPaletteId(i)).isOpaque();
+            anyOpaque |= context.opaque[i];
+        }
+
+        long[] visibility = new long[Chunk.SECTIONS];
+        if (!anyOpaque) {
+            Arrays.fill(visibility, ALL);
+            return visibility;
+        }
+
+        storage.getIndices(context.indices);
+        for (int section = 0; section < Chunk.SECTIONS; section++) {
+            visibility[section] = computeSection(context, section);
+        }
+        return visibility;
+    }
+
+    /**
+     * Flood-fills the non-opaque voxels of one section and connects the faces touched by each region.
+     */
+    private static long computeSection(Context context, int section) {
+        int[] indices = context.indices;
+        boolean[] opaque = context.opaque;
+        boolean[] visited = context.visited;
+        int[] stack = context.stack;
+        int baseY = section * Chunk.SECTION_SIZE;
+
+        // Mark opaque voxels as visited so the fill never enters them
+        for (int voxel = 0; voxel < VOLUME; voxel++) {
+            visited[voxel] = opaque[indices[chunkIndex(voxel, baseY)]];
+        }
+
+        long visibility = NONE;
+        for (int start = 0; start < VOLUME; start++) {
+            if (visited[start]) {
+                continue;
+            }
+
+            int faces = 0;
+            int top = 0;
+            stack[top++] = start;
+            visited[start] = true;
+            while (top > 0) {
+                int voxel = stack[--top];
+                int y = voxel % Chunk.SECTION_SIZE;
+                int z = voxel / Chunk.SECTION_SIZE % Chunk.SIZE;
+                int x = voxel / (Chunk.SECTION_SIZE * Chunk.SIZE);
+
+                if (x == 0) faces |= 1 << BlockFace.LEFT.ordinal();
+                if (x == Chunk.SIZE - 1) faces |= 1 << BlockFace.RIGHT.ordinal();
+                if (y == 0) faces |= 1 << BlockFace.BOTTOM.ordinal();
+                if (y == Chunk.SECTION_SIZE - 1) faces |= 1 << BlockFace.TOP.ordinal();
+                if (z == 0) faces |= 1 << BlockFace.BACK.ordinal();
+                if (z == Chunk.SIZE - 1) faces |= 1 << BlockFace.FRONT.ordinal();
+
+                if (x > 0) top = push(stack, visited, top, voxel - Chunk.SECTION_SIZE * Chunk.SIZE);
+                if (x < Chunk.SIZE - 1) top = push(stack, visited, top, voxel + Chunk.SECTION_SIZE * Chunk.SIZE);
+                if (y > 0) top = push(stack, visited, top, voxel - 1);
+                if (y < Chunk.SECTION_SIZE - 1) top = push(stack, visited, top, voxel + 1);
+                if (z > 0) top = push(stack, visited, top, voxel - Chunk.SECTION_SIZE);
+                if (z < Chunk.SIZE - 1) top = push(stack, visited, top, voxel + Chunk.SECTION_SIZE);
+            }
+
+            for (int from = 0; from < BlockFace.VALUES.length; from++) {
+                if ((faces & 1 << from) != 0) {
+                    visibility |= (long) faces << (from * BlockFace.VALUES.length);
+                }
+            }
+            if (visibility == ALL) {
+                break;
+            }
+        }
+        return visibility;
+    }
+
+    /**
+     * Pushes an unvisited voxel on the fill stack.
+     */
+    private static int push(int[] stack, boolean[] visited, int top, int voxel) {
+        if (!visited[voxel]) {
+            visited[voxel] = true;
+            stack[top++] = voxel;
+        }
+        return top;
+    }
+
+    /**
+     * Converts a section voxel index (same Y-fastest layout as {@link ChunkStorage}) to a chunk voxel index.
+     */
+    private static int chunkIndex(int voxel, int baseY) {
+        int y = voxel % Chunk.SECTION_SIZE;
+        int column = voxel / Chunk.SECTION_SIZE;
+        return column * Chunk.DEPTH + baseY + y;
+    }
+
+    /**
+     * Returns true if two faces of a section see each other.
+     *
+     * @param visibility The visibility of the section.
+     * @param from       The face through which the section is entered.
+     * @param to         The face through which it is left.
+     * @return True if some non-opaque path connects the two faces.
+     */
+    public static boolean isConnected(long visibility, BlockFace from, BlockFace to) {
+        return (visibility >>> (from.ordinal() * BlockFace.VALUES.length + to.ordinal()) & 1) != 0;
+    }
+}
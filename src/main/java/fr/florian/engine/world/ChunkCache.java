@@ -0,0 +1,189 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.graphics.Mesh;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Memory-budgeted cache of recently unloaded chunks, between the loaded chunks and the region files.
+ * Entries hold the compressed blocks of a chunk and, when they were up to date, the CPU-side data of its
+ * meshes, so a chunk reloaded from the cache is neither decoded from disk nor remeshed.
+ *
+ * When the total size of the entries exceeds the budget, the least recently used entries are evicted
+ * and handed to a callback, which writes the modified ones to disk. All methods must be called from
+ * the render thread.
+ */
+public class ChunkCache {
+
+    /**
+     * A cached chunk.
+     *
+     * @param x                Chunk X coordinate.
+     * @param y                Chunk Y coordinate.
+     * @param z                Chunk Z coordinate.
+     * @param blocks           The compressed blocks ({@link RegionStorage#encode}).
+     * @param modified         Whether the blocks differ from the copy saved on disk.
+     * @param meshes           The meshes of the chunk by section (GPU resources freed), or null.
+     * @param meshedNeighbours The faces whose neighbour was generated when the meshes were built.
+     * @param meshedLod        The level of detail of the meshes.
+     */
+    public record Entry(int x, int y, int z, byte[] blocks, boolean modified, List<Mesh> meshes, int meshedNeighbours, int meshedLod) {
+
+        /** @return The approximate memory used by the entry, in bytes. */
+        public long getSizeInBytes() {
+            long size = blocks.length;
+            if (meshes != null) {
+                for (Mesh mesh : meshes) {
+                    if (mesh != null) size += mesh.getSizeInBytes();
+                }
+            }
+            return size;
+        }
+
+        /** @return A copy of the entry without meshes, keeping the blocks. */
+        public Entry withoutMeshes() {
+            return new Entry(x, y, z, blocks, modified, null, -1, 0);
+        }
+    }
+
+    /** Cached chunks in access order (least recently used first), keyed by packed chunk coordinates. */
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    /** Called with every evicted entry. */
+    private final Consumer<Entry> onEvicted;
+
+    /** Maximum total size of the entries, in bytes. */
+    private long budget;
+
+    /** Current total size of the entries, in bytes. */
+    private long size;
+
+    /** Number of lookups that found a chunk. */
+    private long hits;
+
+    /** Number of lookups that missed. */
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param budget    The maximum total size of the entries, in bytes.
+     * @param onEvicted Called with every entry evicted to stay within the budget.
+     */
+    public ChunkCache(long budget, Consumer<Entry> onEvicted) {
+        this.budget = budget;
+        this.onEvicted = onEvicted;
+    }
+
+    /**
+     * Adds a chunk to the cache, evicting the least recently used entries if the budget is exceeded.
+     *
+     * @param x     Chunk X coordinate.
+     * @param y     Chunk Y coordinate.
+     * @param z     Chunk Z coordinate.
+     * @param entry The cached data.
+     */
+    public void put(int x, int y, int z, Entry entry) {
+        Entry previous = entries.put(World.pack(x, y, z), entry);
+        if (previous != null) {
+            size -= previous.getSizeInBytes();
+        }
+        size += entry.getSizeInBytes();
+        trim();
+    }
+
+    /**
+     * Removes a chunk from the cache.
+     *
+     * @param x Chunk X coordinate.
+     * @param y Chunk Y coordinate.
+     * @param z Chunk Z coordinate.
+     * @return The cached data, or null if the chunk is not cached.
+     */
+    public Entry remove(int x, int y, int z) {
+        Entry entry = entries.remove(World.pack(x, y, z));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        size -= entry.getSizeInBytes();
+        return entry;
+    }
+
+    /**
+     * Evicts the least recently used entries until the size is within the budget.
+     */
+    private void trim() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            size -= entry.getSizeInBytes();
+            onEvicted.accept(entry);
+        }
+    }
+
+    /**
+     * Drops the cached meshes, keeping the blocks (e.g. after changing the meshing mode).
+     */
+    public void dropMeshes() {
+        for (Map.Entry<Long, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (entry.meshes() != null) {
+                size -= entry.getSizeInBytes();
+                entry = entry.withoutMeshes();
+                size += entry.getSizeInBytes();
+                cached.setValue(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, handing them to the eviction callback.
+     */
+    public void clear() {
+        List<Entry> evicted = new ArrayList<>(entries.values());
+        entries.clear();
+        size = 0;
+        for (Entry entry : evicted) {
+            onEvicted.accept(entry);
+        }
+    }
+
+    /** @return The number of cached chunks. */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /** @return The total size of the entries, in bytes. */
+    public long getSizeInBytes() {
+        return size;
+    }
+
+    /** @return The maximum total size of the entries, in bytes. */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Changes the budget, evicting entries if the cache is now too large.
+     *
+     * @param budget The new maximum size, in bytes.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        trim();
+    }
+
+    /** @return The fraction of lookups that found a chunk (0 if none were made). */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,162 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compresses the blocks of a chunk into a byte payload, for region files and cold chunks kept in memory.
+ * Every codec has a unique ID, written in front of the payloads so data encoded by any codec
+ * can be decoded later (see {@link ChunkCodecs#get}).
+ *
+ * Codecs keep cumulative statistics (compression ratio, encode and decode throughput) measured
+ * against the uncompressed serialized size of the chunks ({@link ChunkStorage#getSerializedSize()}).
+ * Implementations must be stateless and thread-safe.
+ */
+public abstract class ChunkCodec {
+
+    /** Unique ID of the codec, written in front of its payloads. */
+    private final int id;
+
+    /** Display name of the codec. */
+    private final String name;
+
+    /** Uncompressed bytes encoded so far. */
+    private final AtomicLong encodedRawBytes = new AtomicLong();
+
+    /** Compressed bytes produced so far. */
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    /** Time spent encoding so far. */
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    /** Uncompressed bytes decoded so far. */
+    private final AtomicLong decodedRawBytes = new AtomicLong();
+
+    /** Time spent decoding so far. */
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    /** Number of chunks encoded so far. */
+    private final AtomicLong encodedChunks = new AtomicLong();
+
+    /**
+     * @param id   The unique codec ID (0 to 255).
+     * @param name The display name.
+     */
+    protected ChunkCodec(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Compresses the blocks of a chunk.
+     *
+     * @param storage The blocks to compress.
+     * @return The compressed payload (without the codec ID).
+     */
+    public final byte[] encode(ChunkStorage storage) {
+        long start = System.nanoTime();
+        byte[] payload = encodeStorage(storage);
+        encodeNanos.addAndGet(System.nanoTime() - start);
+        encodedRawBytes.addAndGet(storage.getSerializedSize());
+        encodedBytes.addAndGet(payload.length);
+        encodedChunks.incrementAndGet();
+        return payload;
+    }
+
+    /**
+     * Restores the blocks of a chunk.
+     *
+     * @param payload The compressed payload (without the codec ID).
+     * @param sizeX   Size of the chunk along the X axis.
+     * @param sizeY   Size of the chunk along the Y axis.
+     * @param sizeZ   Size of the chunk along the Z axis.
+     * @return The restored blocks.
+     * @throws IllegalArgumentException If the payload is corrupted.
+     */
+    public final ChunkStorage decode(ByteBuffer payload, int sizeX, int sizeY, int sizeZ) {
+        long start = System.nanoTime();
+        ChunkStorage storage = decodeStorage(payload, sizeX, sizeY, sizeZ);
+        decodeNanos.addAndGet(System.nanoTime() - start);
+        decodedRawBytes.addAndGet(storage.getSerializedSize());
+        return storage;
+    }
+
+    /**
+     * Compresses the blocks of a chunk.
+     */
+    protected abstract byte[] encodeStorage(ChunkStorage storage);
+
+    /**
+     * Restores the blocks of a chunk.
+     */
+    protected abstract ChunkStorage decodeStorage(ByteBuffer payload, int sizeX, int sizeY, int sizeZ);
+
+    /**
+     * Writes an unsigned variable-length integer (7 bits per byte, lowest first).
+     */
+    protected static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer written by {@link #writeVarInt}.
+     */
+    protected static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /** @return The unique ID of the codec. */
+    public int getId() {
+        return id;
+    }
+
+    /** @return The display name of the codec. */
+    public String getName() {
+        return name;
+    }
+
+    /** @return The average uncompressed size divided by the compressed size (1 if nothing was encoded). */
+    public double getRatio() {
+        long encoded = encodedBytes.get();
+        return encoded == 0 ? 1 : (double) encodedRawBytes.get() / encoded;
+    }
+
+    /** @return The encode throughput, in uncompressed MB per second. */
+    public double getEncodeSpeed() {
+        return megabytesPerSecond(encodedRawBytes.get(), encodeNanos.get());
+    }
+
+    /** @return The decode throughput, in uncompressed MB per second. */
+    public double getDecodeSpeed() {
+        return megabytesPerSecond(decodedRawBytes.get(), decodeNanos.get());
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    /** @return A one-line summary of the codec statistics. */
+    public String getStats() {
+        return String.format("%s: %d chunks, ratio %.2f:1, encode %.1f MB/s, decode %.1f MB/s",
+                name, encodedChunks.get(), getRatio(), getEncodeSpeed(), getDecodeSpeed());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,74 @@
+package fr.florian.engine.world;
+
+import java.util.StringJoiner;
+
+/**
+ * Registry of the available {@link ChunkCodec}s, indexed by codec ID.
+ * IDs are written in saved data: they must never be reused for a different format.
+ */
+public class ChunkCodecs {
+
+    /** Registered codecs, indexed by ID. */
+    private static final ChunkCodec[] codecs = new ChunkCodec[256];
+
+    /** Serialized palette storage, uncompressed. */
+    public static final ChunkCodec RAW = register(new RawChunkCodec(0));
+
+    /** Run-length encoding of the block columns. */
+    public static final ChunkCodec RUN_LENGTH = register(new RunLengthChunkCodec(1));
+
+    /** LZ compression of the serialized palette storage. */
+    public static final ChunkCodec LZ = register(new LzChunkCodec(2, RAW));
+
+    /** LZ compression of the column runs: smallest output on generated terrain. */
+    public static final ChunkCodec RUN_LENGTH_LZ = register(new LzChunkCodec(3, RUN_LENGTH));
+
+    /**
+     * Registers a codec.
+     *
+     * @param codec The codec to register.
+     * @return The registered codec.
+     * @throws IllegalArgumentException If the ID is out of range or already used.
+     */
+    public static synchronized ChunkCodec register(ChunkCodec codec) {
+        int id = codec.getId();
+        if (id < 0 || id >= codecs.length) {
+            throw new IllegalArgumentException("Codec ID out of range: " + codec);
+        }
+        if (codecs[id] != null) {
+            throw new IllegalArgumentException("Codec ID " + id + " already used by " + codecs[id]);
+        }
+        codecs[id] = codec;
+        return codec;
+    }
+
+    /**
+     * Returns the codec registered for an ID.
+     *
+     * @param id The codec ID.
+     * @return The codec.
+     * @throws IllegalArgumentException If no codec uses this ID.
+     */
+    public static ChunkCodec get(int id) {
+        ChunkCodec codec = id >= 0 && id < codecs.length ? codecs[id] : null;
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown chunk codec: " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * Returns the statistics of every codec that encoded or decoded data, one codec per line.
+     *
+     * @return The statistics, or an empty string if no codec was used.
+     */
+    public static String getStats() {
+        StringJoiner stats = new StringJoiner(System.lineSeparator());
+        for (ChunkCodec codec : codecs) {
+            if (codec != null && (codec.getEncodeSpeed() > 0 || codec.getDecodeSpeed() > 0)) {
+                stats.add(codec.getStats());
+            }
+        }
+        return stats.toString();
+    }
+}
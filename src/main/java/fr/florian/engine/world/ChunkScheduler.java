@@ -0,0 +1,221 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.maths.Vector3f;
+import fr.florian.engine.objects.Chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Engine-wide pool of worker threads running chunk jobs (generation, meshing, disk I/O).
+ * Jobs are ordered by the distance between their chunk and the camera, so the chunks closest
+ * to the player are built first. Jobs of destroyed chunks are cancelled, except {@link JobType#SAVE} jobs.
+ */
+public class ChunkScheduler {
+
+    /**
+     * Kind of chunk job. When two jobs are at the same distance, the lowest ordinal runs first.
+     */
+    public enum JobType {
+        /** Loading chunk data from disk. */
+        LOAD,
+
+        /** Writing chunk data to disk. Never cancelled, since it runs after the chunk is unloaded. */
+        SAVE,
+
+        /** Filling the chunk blocks. */
+        GENERATION,
+
+        /** Building the chunk meshes. */
+        MESHING
+    }
+
+    /** Distance (in blocks) the focus must move before queued jobs are re-prioritized. */
+    private static final float REPRIORITIZE_DISTANCE = Chunk.SIZE;
+
+    /**
+     * A queued job, ordered by squared distance to the focus, then type, then submission order.
+     * The chunk is null for jobs submitted with only a chunk origin.
+     */
+    private static final class Job implements Comparable<Job> {
+        final Chunk chunk;
+        final Vector3f origin;
+        final JobType type;
+        final Runnable work;
+        final long sequence;
+        float priority;
+
+        Job(Chunk chunk, Vector3f origin, JobType type, Runnable work, long sequence) {
+            this.chunk = chunk;
+            this.origin = origin;
+            this.type = type;
+            this.work = work;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int result = Float.compare(priority, other.priority);
+            if (result == 0) result = Integer.compare(type.ordinal(), other.type.ordinal());
+            if (result == 0) result = Long.compare(sequence, other.sequence);
+            return result;
+        }
+    }
+
+    /** Pending jobs, closest first. */
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+
+    /** Counter giving FIFO order between jobs of equal priority. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Worker threads. */
+    private final Thread[] workers;
+
+    /** Current focus point (usually the camera position). */
+    private volatile float focusX, focusY, focusZ;
+
+    /** Focus point used for the last re-prioritization. */
+    private float sortedX, sortedY, sortedZ;
+
+    /** Whether the scheduler is still accepting and running jobs. */
+    private volatile boolean running = true;
+
+    /**
+     * Creates the scheduler and starts its worker threads (daemon threads).
+     *
+     * @param threadCount Number of worker threads.
+     */
+    public ChunkScheduler(int threadCount) {
+        workers = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Thread(this::work, "Chunk Worker #" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Worker loop: takes the closest job and runs it unless its chunk was destroyed.
+     */
+    private void work() {
+        while (running) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (job.chunk != null && job.chunk.isDestroyed() && job.type != JobType.SAVE) {
+                continue;
+            }
+
+            try {
+                job.work.run();
+            } catch (Throwable t) {
+                System.err.println("Chunk " + job.type + " job failed at " + job.origin.getX() + ", "
+                        + job.origin.getY() + ", " + job.origin.getZ());
+                t.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Queues a job for a chunk. Can be called from any thread.
+     *
+     * @param chunk The chunk the job works on (used for priority and cancellation).
+     * @param type  The kind of job.
+     * @param work  The work to run on a worker thread.
+     */
+    public void submit(Chunk chunk, JobType type, Runnable work) {
+        submit(chunk, chunk.getPosition(), type, work);
+    }
+
+    /**
+     * Queues a job that is not tied to a loaded chunk (e.g. saving a chunk that was unloaded),
+     * prioritized by the distance to a chunk origin. The job is never cancelled. Can be called from any thread.
+     *
+     * @param origin The world-space origin of the chunk the job works on (used for priority).
+     * @param type   The kind of job.
+     * @param work   The work to run on a worker thread.
+     */
+    public void submit(Vector3f origin, JobType type, Runnable work) {
+        submit(null, origin, type, work);
+    }
+
+    /**
+     * Queues a job with its priority computed from the current focus.
+     */
+    private void submit(Chunk chunk, Vector3f origin, JobType type, Runnable work) {
+        if (!running) {
+            return;
+        }
+        Job job = new Job(chunk, origin, type, work, sequence.getAndIncrement());
+        job.priority = distanceSquared(origin, focusX, focusY, focusZ);
+        queue.add(job);
+    }
+
+    /**
+     * Removes every queued job of a chunk (e.g. when it leaves the view range), except its saves.
+     * A job already running is not interrupted.
+     *
+     * @param chunk The chunk whose jobs are cancelled.
+     */
+    public void cancel(Chunk chunk) {
+        queue.removeIf(job -> job.chunk == chunk && job.type != JobType.SAVE);
+    }
+
+    /**
+     * Updates the focus point used to prioritize jobs. Queued jobs are re-sorted once the focus
+     * has moved far enough. Should be called once per frame with the camera position.
+     *
+     * @param position The new focus point.
+     */
+    public void setFocus(Vector3f position) {
+        focusX = position.getX();
+        focusY = position.getY();
+        focusZ = position.getZ();
+
+        float dx = focusX - sortedX, dy = focusY - sortedY, dz = focusZ - sortedZ;
+        if (dx * dx + dy * dy + dz * dz >= REPRIORITIZE_DISTANCE * REPRIORITIZE_DISTANCE) {
+            sortedX = focusX;
+            sortedY = focusY;
+            sortedZ = focusZ;
+
+            List<Job> jobs = new ArrayList<>(queue.size());
+            queue.drainTo(jobs);
+            for (Job job : jobs) {
+                job.priority = distanceSquared(job.origin, focusX, focusY, focusZ);
+            }
+            queue.addAll(jobs);
+        }
+    }
+
+    /**
+     * Computes the squared distance between the centre of the chunk at an origin and a point.
+     */
+    private static float distanceSquared(Vector3f position, float x, float y, float z) {
+        float dx = position.getX() + Chunk.SIZE / 2f - x;
+        float dy = position.getY() + Chunk.DEPTH / 2f - y;
+        float dz = position.getZ() + Chunk.SIZE / 2f - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** @return The number of jobs waiting to run. */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops the worker threads and drops all pending jobs.
+     */
+    public void shutdown() {
+        running = false;
+        queue.clear();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
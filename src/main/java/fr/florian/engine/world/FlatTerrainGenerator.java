@@ -0,0 +1,21 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.BlockRegistry;
+import fr.florian.engine.objects.ChunkStorage;
+
+/**
+ * Generates completely filled chunks: dirt with a layer of grass on top.
+ */
+public class FlatTerrainGenerator implements TerrainGenerator {
+
+    @Override
+    public void generate(ChunkStorage storage, int originX, int originY, int originZ) {
+        int top = storage.getSizeY() - 1;
+        for (int x = 0; x < storage.getSizeX(); x++) {
+            for (int z = 0; z < storage.getSizeZ(); z++) {
+                storage.fillColumn(x, z, 0, top, BlockRegistry.DIRT.getId());
+                storage.set(x, top, z, BlockRegistry.GRASS.getId());
+            }
+        }
+    }
+}
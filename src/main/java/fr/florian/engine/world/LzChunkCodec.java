@@ -0,0 +1,198 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compresses the payload of another codec with a fast LZ77 scheme in the spirit of LZ4.
+ *
+ * The payload starts with the uncompressed length (variable-length integer), followed by sequences
+ * made of a token byte (literal count in the high nibble, match length minus {@value #MIN_MATCH} in
+ * the low nibble, 15 meaning that extra length bytes follow), the literals, then a 2-byte
+ * little-endian match offset. The last sequence only holds literals.
+ * Matches are found through a single hash table of 4-byte sequences, without chains.
+ */
+public class LzChunkCodec extends ChunkCodec {
+
+    /** Shortest match worth encoding. */
+    private static final int MIN_MATCH = 4;
+
+    /** Largest backward match offset. */
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    /** Number of bits of the match-finder hash. */
+    private static final int HASH_BITS = 12;
+
+    /** Codec producing the data compressed by this codec. */
+    private final ChunkCodec inner;
+
+    /** Per-thread match-finder hash table. */
+    private final ThreadLocal<int[]> tables = ThreadLocal.withInitial(() -> new int[1 << HASH_BITS]);
+
+    /**
+     * @param id    The unique codec ID.
+     * @param inner The codec whose payloads are compressed.
+     */
+    public LzChunkCodec(int id, ChunkCodec inner) {
+        super(id, "LZ (" + inner.getName() + ")");
+        this.inner = inner;
+    }
+
+    @Override
+    protected byte[] encodeStorage(ChunkStorage storage) {
+        return compress(inner.encodeStorage(storage), tables.get());
+    }
+
+    @Override
+    protected ChunkStorage decodeStorage(ByteBuffer payload, int sizeX, int sizeY, int sizeZ) {
+        byte[] data = decompress(payload, maxPayloadSize(sizeX * sizeY * sizeZ));
+        return inner.decodeStorage(ByteBuffer.wrap(data), sizeX, sizeY, sizeZ);
+    }
+
+    /**
+     * Compresses a byte array.
+     */
+    private static byte[] compress(byte[] input, int[] table) {
+        Arrays.fill(table, -1);
+        // Worst case: every byte is a literal, plus the length prefix and the literal count bytes
+        ByteBuffer output = ByteBuffer.allocate(input.length + input.length / 255 + 16);
+        writeVarInt(output, input.length);
+
+        int anchor = 0;
+        int position = 0;
+        int limit = input.length - MIN_MATCH;
+        while (position <= limit) {
+            int sequence = readInt(input, position);
+            int hash = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+            int candidate = table[hash];
+            table[hash] = position;
+
+            if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(input, candidate) != sequence) {
+                position++;
+                continue;
+            }
+
+            int length = MIN_MATCH;
+            while (position + length < input.length && input[candidate + length] == input[position + length]) {
+                length++;
+            }
+
+            writeSequence(output, input, anchor, position - anchor, length - MIN_MATCH);
+            output.put((byte) (position - candidate));
+            output.put((byte) ((position - candidate) >>> 8));
+            position += length;
+            anchor = position;
+        }
+
+        writeSequence(output, input, anchor, input.length - anchor, 0);
+        return Arrays.copyOf(output.array(), output.position());
+    }
+
+    /**
+     * Writes the token, the literals and the extra match length bytes of one sequence.
+     */
+    private static void writeSequence(ByteBuffer output, byte[] input, int start, int literals, int matchLength) {
+        output.put((byte) ((Math.min(literals, 15) << 4) | Math.min(matchLength, 15)));
+        if (literals >= 15) {
+            writeExtraLength(output, literals - 15);
+        }
+        output.put(input, start, literals);
+        if (matchLength >= 15) {
+            writeExtraLength(output, matchLength - 15);
+        }
+    }
+
+    private static void writeExtraLength(ByteBuffer output, int length) {
+        while (length >= 255) {
+            output.put((byte) 255);
+            length -= 255;
+        }
+        output.put((byte) length);
+    }
+
+    /**
+     * Reads the extra bytes of a length, stopping as soon as it exceeds a limit so that it cannot overflow.
+     *
+     * @throws IllegalArgumentException If the length exceeds the limit.
+     */
+    private static int readExtraLength(ByteBuffer input, int limit) {
+        int length = 0;
+        int b;
+        do {
+            b = input.get() & 0xFF;
+            length += b;
+            if (length > limit) {
+                throw new IllegalArgumentException("Corrupted LZ chunk data (length overflow)");
+            }
+        } while (b == 255);
+        return length;
+    }
+
+    /**
+     * Returns an upper bound of the size of an uncompressed payload: a serialized storage whose palette
+     * holds one entry per voxel, with one long per voxel.
+     */
+    private static long maxPayloadSize(int volume) {
+        return 1 + Integer.BYTES + (long) Integer.BYTES * volume + (long) Long.BYTES * volume;
+    }
+
+    /**
+     * Decompresses a payload written by {@link #compress}.
+     *
+     * @throws IllegalArgumentException If the payload is corrupted or its uncompressed length exceeds the limit.
+     */
+    private static byte[] decompress(ByteBuffer input, long maxLength) {
+        int length = readVarInt(input);
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Corrupted LZ chunk data (length " + length + ")");
+        }
+        byte[] output = new byte[length];
+        int position = 0;
+        while (true) {
+            int token = input.get() & 0xFF;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                literals += readExtraLength(input, output.length - position - 15);
+            }
+            if (literals < 0 || literals > output.length - position) {
+                throw new IllegalArgumentException("Corrupted LZ chunk data (literals overflow)");
+            }
+            input.get(output, position, literals);
+            position += literals;
+            if (!input.hasRemaining()) {
+                break;
+            }
+
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                matchLength += readExtraLength(input, output.length - position - 15 - MIN_MATCH);
+            }
+            matchLength += MIN_MATCH;
+            int offset = (input.get() & 0xFF) | (input.get() & 0xFF) << 8;
+            if (offset == 0 || offset > position || matchLength < 0 || matchLength > output.length - position) {
+                throw new IllegalArgumentException("Corrupted LZ chunk data (bad match at " + position + ")");
+            }
+
+            // Byte by byte, since the match may overlap the bytes being written
+            for (int i = 0; i < matchLength; i++) {
+                output[position + i] = output[position - offset + i];
+            }
+            position += matchLength;
+        }
+
+        if (position != output.length) {
+            throw new IllegalArgumentException("Corrupted LZ chunk data (truncated)");
+        }
+        return output;
+    }
+
+    /**
+     * Reads 4 bytes as a little-endian int.
+     */
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,87 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.maths.PerlinNoise;
+import fr.florian.engine.objects.BlockRegistry;
+import fr.florian.engine.objects.ChunkStorage;
+
+/**
+ * Seeded heightmap terrain: rolling hills of dirt covered with grass.
+ * The heights of all the columns of a chunk are evaluated in one batch, then written column by column.
+ */
+public class NoiseTerrainGenerator implements TerrainGenerator {
+
+    /** Noise frequency of the first octave (per block). */
+    private static final float FREQUENCY = 1f / 48f;
+
+    /** Number of noise octaves. */
+    private static final int OCTAVES = 4;
+
+    /** Amplitude factor between two octaves. */
+    private static final float PERSISTENCE = 0.5f;
+
+    /** Seed of this generator. */
+    private final long seed;
+
+    /** Noise source shared by all threads (immutable). */
+    private final PerlinNoise noise;
+
+    /** World Y coordinate of the average terrain surface. */
+    private final int baseHeight;
+
+    /** Maximum distance between the surface and the base height. */
+    private final int amplitude;
+
+    /** Per-thread buffer receiving the heightmap of a chunk. */
+    private final ThreadLocal<float[]> heights = new ThreadLocal<>();
+
+    /**
+     * Creates a generator with the given seed and surface parameters.
+     *
+     * @param seed       The world seed.
+     * @param baseHeight World Y coordinate of the average terrain surface.
+     * @param amplitude  Maximum height variation around the base height.
+     */
+    public NoiseTerrainGenerator(long seed, int baseHeight, int amplitude) {
+        this.seed = seed;
+        this.noise = new PerlinNoise(seed);
+        this.baseHeight = baseHeight;
+        this.amplitude = amplitude;
+    }
+
+    @Override
+    public void generate(ChunkStorage storage, int originX, int originY, int originZ) {
+        int sizeX = storage.getSizeX();
+        int sizeY = storage.getSizeY();
+        int sizeZ = storage.getSizeZ();
+
+        float[] buffer = heights.get();
+        if (buffer == null || buffer.length < sizeX * sizeZ) {
+            buffer = new float[sizeX * sizeZ];
+            heights.set(buffer);
+        }
+        noise.fill(buffer, originX, originZ, sizeX, sizeZ, FREQUENCY, OCTAVES, PERSISTENCE);
+
+        int grass = BlockRegistry.GRASS.getId();
+        int dirt = BlockRegistry.DIRT.getId();
+        for (int z = 0; z < sizeZ; z++) {
+            for (int x = 0; x < sizeX; x++) {
+                // Local Y of the surface block of this column
+                int surface = baseHeight + Math.round(buffer[z * sizeX + x] * amplitude) - originY;
+                if (surface < 0) {
+                    continue;
+                }
+                if (surface >= sizeY) {
+                    storage.fillColumn(x, z, 0, sizeY, dirt);
+                    continue;
+                }
+                storage.fillColumn(x, z, 0, surface, dirt);
+                storage.set(x, surface, z, grass);
+            }
+        }
+    }
+
+    /** @return The seed of this generator. */
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,124 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.maths.Frustum;
+import fr.florian.engine.maths.Vector3f;
+import fr.florian.engine.objects.BlockFace;
+import fr.florian.engine.objects.Chunk;
+import fr.florian.engine.objects.SectionVisibility;
+
+import java.util.ArrayDeque;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Finds the chunk sections that may be visible from the camera by walking the section graph.
+ *
+ * The walk is a breadth-first search starting at the section containing the camera. A section is only
+ * left through a face connected, through non-opaque blocks, to the face it was entered from (see
+ * {@link SectionVisibility}), never moves back towards the camera, and never enters a section outside of
+ * the view frustum. Sections enclosed by opaque blocks, such as caves seen from the surface, are
+ * therefore never reached. All methods must be called from the render thread.
+ */
+public class OcclusionCuller {
+
+    /**
+     * A section waiting to be left by the search.
+     *
+     * @param chunk      The chunk of the section.
+     * @param section    The section index in the chunk.
+     * @param from       The face through which the section was entered, or null for the camera section.
+     * @param directions The faces crossed so far, as a bit mask of {@link BlockFace} ordinals.
+     */
+    private record Step(Chunk chunk, int section, BlockFace from, int directions) {
+    }
+
+    /** Sections waiting to be left, reused from one frame to the next. */
+    private final ArrayDeque<Step> queue = new ArrayDeque<>();
+
+    /**
+     * Visits the sections reachable from the camera and inside the frustum.
+     *
+     * @param world    The world.
+     * @param position The camera position.
+     * @param frustum  The camera frustum, already updated for this frame.
+     * @param frame    The number of the current frame, used to mark visited sections.
+     * @param visible  Called once with every reachable section (chunk and section index).
+     * @return False if the camera is next to the loaded chunks rather than inside, above or below them,
+     * in which case nothing was visited and occlusion culling cannot be used this frame.
+     */
+    public boolean cull(World world, Vector3f position, Frustum frustum, int frame, ObjIntConsumer<Chunk> visible) {
+        int blockY = (int) Math.floor(position.getY());
+        int chunkX = Math.floorDiv((int) Math.floor(position.getX()), Chunk.SIZE);
+        int chunkY = Math.floorDiv(blockY, Chunk.DEPTH);
+        int chunkZ = Math.floorDiv((int) Math.floor(position.getZ()), Chunk.SIZE);
+
+        queue.clear();
+        Chunk start = world.getChunk(chunkX, chunkY, chunkZ);
+        if (start != null) {
+            int section = Math.floorMod(blockY, Chunk.DEPTH) / Chunk.SECTION_SIZE;
+            start.visit(section, frame);
+            visible.accept(start, section);
+            queue.add(new Step(start, section, null, 0));
+        } else if (!seedFromOutside(world, chunkY, frustum, frame, visible)) {
+            return false;
+        }
+
+        Step step;
+        while ((step = queue.poll()) != null) {
+            long visibility = step.chunk().getVisibility(step.section());
+            for (BlockFace out : BlockFace.VALUES) {
+                // Never walk back towards the camera
+                if ((step.directions() & 1 << out.opposite().ordinal()) != 0) {
+                    continue;
+                }
+                if (step.from() != null && !SectionVisibility.isConnected(visibility, step.from(), out)) {
+                    continue;
+                }
+
+                Chunk next = step.chunk();
+                int nextSection = step.section() + out.getDy();
+                if (out.getDy() == 0 || nextSection < 0 || nextSection >= Chunk.SECTIONS) {
+                    next = next.getNeighbour(out);
+                    nextSection = Math.floorMod(nextSection, Chunk.SECTIONS);
+                }
+                if (next == null || !next.isSectionInFrustum(frustum, nextSection) || !next.visit(nextSection, frame)) {
+                    continue;
+                }
+
+                visible.accept(next, nextSection);
+                queue.add(new Step(next, nextSection, out.opposite(), step.directions() | 1 << out.ordinal()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts the search from a camera above or below the loaded chunks: every outermost section facing
+     * the camera is entered through its top (or bottom) face.
+     *
+     * @return False if the camera is level with the loaded chunks.
+     */
+    private boolean seedFromOutside(World world, int cameraChunkY, Frustum frustum, int frame, ObjIntConsumer<Chunk> visible) {
+        boolean seeded = false;
+        for (Chunk chunk : world.getChunks()) {
+            int chunkY = World.chunkY(chunk);
+            BlockFace entry;
+            int section;
+            if (cameraChunkY > chunkY && chunk.getNeighbour(BlockFace.TOP) == null) {
+                entry = BlockFace.TOP;
+                section = Chunk.SECTIONS - 1;
+            } else if (cameraChunkY < chunkY && chunk.getNeighbour(BlockFace.BOTTOM) == null) {
+                entry = BlockFace.BOTTOM;
+                section = 0;
+            } else {
+                continue;
+            }
+
+            seeded = true;
+            if (chunk.isSectionInFrustum(frustum, section) && chunk.visit(section, frame)) {
+                visible.accept(chunk, section);
+                queue.add(new Step(chunk, section, entry, 1 << entry.opposite().ordinal()));
+            }
+        }
+        return seeded;
+    }
+}
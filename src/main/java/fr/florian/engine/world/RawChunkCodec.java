@@ -0,0 +1,30 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores the serialized palette storage as is ({@link ChunkStorage#write}).
+ */
+public class RawChunkCodec extends ChunkCodec {
+
+    /**
+     * @param id The unique codec ID.
+     */
+    public RawChunkCodec(int id) {
+        super(id, "Raw");
+    }
+
+    @Override
+    protected byte[] encodeStorage(ChunkStorage storage) {
+        ByteBuffer buffer = ByteBuffer.allocate(storage.getSerializedSize());
+        storage.write(buffer);
+        return buffer.array();
+    }
+
+    @Override
+    protected ChunkStorage decodeStorage(ByteBuffer payload, int sizeX, int sizeY, int sizeZ) {
+        return ChunkStorage.read(payload, sizeX, sizeY, sizeZ);
+    }
+}
@@ -0,0 +1,213 @@
+package fr.florian.engine.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * A file holding the saved data of {@value #SIZE} x {@value #SIZE} chunks of one chunk layer.
+ *
+ * The file starts with a header table of {@value #CHUNKS} entries (sector offset and payload length,
+ * two ints each), followed by the chunk payloads stored in {@value #SECTOR_SIZE}-byte sectors.
+ * The whole file is memory-mapped: reading a chunk is a plain memory copy, and the mapping is only
+ * recreated when the file grows. Freed sectors are tracked and reused by later writes.
+ *
+ * A chunk is never written over its previous payload: the new payload goes to free sectors and is
+ * flushed to disk before the header entry points to it, so an interrupted write leaves the old copy.
+ *
+ * All methods are synchronized; a region file can be shared by worker threads.
+ */
+public class RegionFile {
+
+    /** Number of chunks per region along the X and Z axes. */
+    public static final int SIZE = 32;
+
+    /** Number of chunks per region. */
+    public static final int CHUNKS = SIZE * SIZE;
+
+    /** Size of an allocation unit of the file, in bytes (compressed chunks are usually well below it). */
+    public static final int SECTOR_SIZE = 256;
+
+    /** Size of one header entry: sector offset and payload length. */
+    private static final int ENTRY_SIZE = 2 * Integer.BYTES;
+
+    /** Number of sectors used by the header table. */
+    private static final int HEADER_SECTORS = CHUNKS * ENTRY_SIZE / SECTOR_SIZE;
+
+    /** Number of sectors added at once when the file grows, to limit remapping. */
+    private static final int GROWTH_SECTORS = 256;
+
+    /** Path of the file. */
+    private final Path path;
+
+    /** Channel of the open file. */
+    private final FileChannel channel;
+
+    /** Mapping of the whole file. */
+    private MappedByteBuffer mapped;
+
+    /** Number of sectors currently mapped. */
+    private int sectorCount;
+
+    /** Sectors used by the header or by a chunk payload. */
+    private final BitSet usedSectors = new BitSet();
+
+    /**
+     * Opens a region file, creating it with an empty header if it does not exist.
+     * Header entries pointing outside of the file, or to sectors already used by another entry, are dropped.
+     *
+     * @param path The path of the file.
+     * @throws RuntimeException If the file cannot be opened.
+     */
+    public RegionFile(Path path) {
+        this.path = path;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int sectors = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+            map(Math.max(sectors, HEADER_SECTORS));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open region file: " + path, e);
+        }
+
+        usedSectors.set(0, HEADER_SECTORS);
+        for (int i = 0; i < CHUNKS; i++) {
+            int offset = mapped.getInt(i * ENTRY_SIZE);
+            int length = mapped.getInt(i * ENTRY_SIZE + Integer.BYTES);
+            if (length == 0) {
+                continue;
+            }
+            if (length < 0 || offset < HEADER_SECTORS
+                    || (long) offset + ((long) length + SECTOR_SIZE - 1) / SECTOR_SIZE > sectorCount
+                    || !usedSectors.get(offset, offset + sectorsFor(length)).isEmpty()) {
+                // Dropped entries read as never saved, so the chunk is generated again and rewritten.
+                // Overlapping entries are dropped too, since writing one would overwrite the other
+                System.err.println("Dropping corrupted entry of chunk " + i + " in region file " + path);
+                mapped.putInt(i * ENTRY_SIZE, 0);
+                mapped.putInt(i * ENTRY_SIZE + Integer.BYTES, 0);
+                continue;
+            }
+            usedSectors.set(offset, offset + sectorsFor(length));
+        }
+    }
+
+    /**
+     * Reads the payload of a chunk.
+     *
+     * @param localX Chunk X coordinate within the region (0 to {@value #SIZE} - 1).
+     * @param localZ Chunk Z coordinate within the region (0 to {@value #SIZE} - 1).
+     * @return A copy of the payload, or null if the chunk was never saved.
+     * @throws RuntimeException If the header entry of the chunk points outside of the file.
+     */
+    public synchronized ByteBuffer read(int localX, int localZ) {
+        int entry = entry(localX, localZ);
+        int offset = mapped.getInt(entry);
+        int length = mapped.getInt(entry + Integer.BYTES);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || offset < HEADER_SECTORS || (long) offset * SECTOR_SIZE + length > (long) sectorCount * SECTOR_SIZE) {
+            throw new RuntimeException("Corrupted region file: " + path + " (chunk " + localX + ", " + localZ + ")");
+        }
+
+        byte[] payload = new byte[length];
+        mapped.get(offset * SECTOR_SIZE, payload);
+        return ByteBuffer.wrap(payload);
+    }
+
+    /**
+     * Writes the payload of a chunk to free sectors, then points its header entry to them and frees
+     * the previous ones. The payload and then the header entry are flushed to disk.
+     *
+     * @param localX  Chunk X coordinate within the region (0 to {@value #SIZE} - 1).
+     * @param localZ  Chunk Z coordinate within the region (0 to {@value #SIZE} - 1).
+     * @param payload The chunk payload.
+     */
+    public synchronized void write(int localX, int localZ, byte[] payload) {
+        int entry = entry(localX, localZ);
+        int oldOffset = mapped.getInt(entry);
+        int oldLength = mapped.getInt(entry + Integer.BYTES);
+
+        // The old sectors stay used until the header points to the new ones
+        int offset = allocate(sectorsFor(payload.length));
+        mapped.put(offset * SECTOR_SIZE, payload);
+        mapped.force(offset * SECTOR_SIZE, payload.length);
+
+        mapped.putInt(entry, offset);
+        mapped.putInt(entry + Integer.BYTES, payload.length);
+        mapped.force(entry, ENTRY_SIZE);
+
+        if (oldLength != 0) {
+            usedSectors.clear(oldOffset, oldOffset + sectorsFor(oldLength));
+        }
+    }
+
+    /**
+     * Finds a run of free sectors, growing the file if needed, and marks it used.
+     */
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (start < sectorCount) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) {
+                break;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+
+        if (start + sectors > sectorCount) {
+            try {
+                map(start + sectors + GROWTH_SECTORS);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to grow region file: " + path, e);
+            }
+        }
+        usedSectors.set(start, start + sectors);
+        return start;
+    }
+
+    /**
+     * Maps the file with the given number of sectors, extending it if it is smaller.
+     */
+    private void map(int sectors) throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) sectors * SECTOR_SIZE);
+        sectorCount = sectors;
+    }
+
+    /**
+     * Returns the byte position of the header entry of a chunk.
+     */
+    private static int entry(int localX, int localZ) {
+        if (localX < 0 || localZ < 0 || localX >= SIZE || localZ >= SIZE) {
+            throw new IllegalArgumentException("Chunk outside of the region: " + localX + ", " + localZ);
+        }
+        return (localZ * SIZE + localX) * ENTRY_SIZE;
+    }
+
+    /**
+     * Returns the number of sectors needed to store a payload.
+     */
+    private static int sectorsFor(int length) {
+        return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    /** @return The path of the file. */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Writes the mapped changes to disk and closes the file.
+     */
+    public synchronized void close() {
+        try {
+            mapped.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close region file: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.Chunk;
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Saves and loads chunk blocks through the {@link RegionFile}s of a world directory.
+ * Chunks are compressed with a {@link ChunkCodec}; each payload starts with the codec ID, so chunks
+ * saved with another codec remain readable.
+ *
+ * Saving is split in two steps: {@link #queueSave} copies the blocks of a chunk on the render thread,
+ * then {@link #save} writes the copy from a worker thread. Chunks waiting to be written are served
+ * from memory, so a chunk reloaded before its save ran is never regenerated.
+ *
+ * File access is serialized on this object and can be done from any thread.
+ */
+public class RegionStorage {
+
+    /** Directory holding the region files. */
+    private final Path directory;
+
+    /** Codec compressing the saved chunks. */
+    private final ChunkCodec codec;
+
+    /** Open region files, keyed by packed region coordinates. */
+    private final Map<Long, RegionFile> regions = new HashMap<>();
+
+    /** Compressed blocks of the chunks waiting to be written, keyed by packed chunk coordinates. */
+    private final Map<Long, byte[]> pendingSaves = new ConcurrentHashMap<>();
+
+    /** Whether the files have been closed. */
+    private boolean closed;
+
+    /**
+     * Creates a storage using the given directory, creating it if needed.
+     *
+     * @param directory The directory holding the region files.
+     * @param codec     The codec compressing the saved chunks.
+     * @throws RuntimeException If the directory cannot be created.
+     */
+    public RegionStorage(Path directory, ChunkCodec codec) {
+        this.directory = directory;
+        this.codec = codec;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create world directory: " + directory, e);
+        }
+    }
+
+    /**
+     * Loads the saved blocks of a chunk.
+     *
+     * @param x Chunk X coordinate.
+     * @param y Chunk Y coordinate.
+     * @param z Chunk Z coordinate.
+     * @return The blocks, or null if the chunk was never saved.
+     * @throws RuntimeException If the saved chunk is corrupted.
+     */
+    public ChunkStorage load(int x, int y, int z) {
+        byte[] pending = pendingSaves.get(World.pack(x, y, z));
+        if (pending != null) {
+            return decode(ByteBuffer.wrap(pending));
+        }
+
+        ByteBuffer payload;
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            RegionFile region = region(x, y, z, false);
+            if (region == null) {
+                return null;
+            }
+            payload = region.read(Math.floorMod(x, RegionFile.SIZE), Math.floorMod(z, RegionFile.SIZE));
+        }
+        return payload == null ? null : decode(payload);
+    }
+
+    /**
+     * Compresses the blocks of a chunk, prefixed by the codec ID.
+     *
+     * @param storage The blocks of the chunk.
+     * @return The payload.
+     */
+    public byte[] encode(ChunkStorage storage) {
+        byte[] encoded = codec.encode(storage);
+        byte[] payload = new byte[encoded.length + 1];
+        payload[0] = (byte) codec.getId();
+        System.arraycopy(encoded, 0, payload, 1, encoded.length);
+        return payload;
+    }
+
+    /**
+     * Restores the blocks of a chunk from a payload written by {@link #encode}.
+     *
+     * @param payload The payload.
+     * @return The blocks of the chunk.
+     * @throws IllegalArgumentException If the payload is corrupted or uses an unknown codec.
+     */
+    public static ChunkStorage decode(ByteBuffer payload) {
+        ChunkCodec codec = ChunkCodecs.get(payload.get() & 0xFF);
+        return codec.decode(payload, Chunk.SIZE, Chunk.DEPTH, Chunk.SIZE);
+    }
+
+    /**
+     * Compresses the blocks of a chunk so that they can be written later by {@link #save}.
+     * Must be called from the thread modifying the blocks (the render thread).
+     *
+     * @param x       Chunk X coordinate.
+     * @param y       Chunk Y coordinate.
+     * @param z       Chunk Z coordinate.
+     * @param storage The blocks of the chunk.
+     */
+    public void queueSave(int x, int y, int z, ChunkStorage storage) {
+        queueSave(x, y, z, encode(storage));
+    }
+
+    /**
+     * Queues an already compressed chunk so that it can be written later by {@link #save}.
+     *
+     * @param x       Chunk X coordinate.
+     * @param y       Chunk Y coordinate.
+     * @param z       Chunk Z coordinate.
+     * @param payload The compressed blocks ({@link #encode}).
+     */
+    public void queueSave(int x, int y, int z, byte[] payload) {
+        pendingSaves.put(World.pack(x, y, z), payload);
+    }
+
+    /**
+     * Writes the queued copy of a chunk to its region file. Does nothing if it was already written.
+     *
+     * @param x Chunk X coordinate.
+     * @param y Chunk Y coordinate.
+     * @param z Chunk Z coordinate.
+     */
+    public synchronized void save(int x, int y, int z) {
+        long key = World.pack(x, y, z);
+        byte[] payload = pendingSaves.get(key);
+        if (payload == null || closed) {
+            return;
+        }
+        region(x, y, z, true).write(Math.floorMod(x, RegionFile.SIZE), Math.floorMod(z, RegionFile.SIZE), payload);
+        pendingSaves.remove(key, payload);
+    }
+
+    /**
+     * Returns the region file containing a chunk, opening it if needed.
+     *
+     * @return The region file, or null if it does not exist and {@code create} is false.
+     */
+    private RegionFile region(int x, int y, int z, boolean create) {
+        int regionX = Math.floorDiv(x, RegionFile.SIZE);
+        int regionZ = Math.floorDiv(z, RegionFile.SIZE);
+        long key = World.pack(regionX, y, regionZ);
+        RegionFile region = regions.get(key);
+        if (region == null) {
+            Path path = directory.resolve("r." + regionX + "." + y + "." + regionZ + ".region");
+            if (!create && !Files.exists(path)) {
+                return null;
+            }
+            region = new RegionFile(path);
+            regions.put(key, region);
+        }
+        return region;
+    }
+
+    /** @return The number of chunks waiting to be written. */
+    public int getPendingCount() {
+        return pendingSaves.size();
+    }
+
+    /**
+     * Writes every queued chunk, then closes the region files.
+     */
+    public synchronized void close() {
+        for (long key : pendingSaves.keySet()) {
+            byte[] payload = pendingSaves.remove(key);
+            int x = World.unpackX(key), y = World.unpackY(key), z = World.unpackZ(key);
+            region(x, y, z, true).write(Math.floorMod(x, RegionFile.SIZE), Math.floorMod(z, RegionFile.SIZE), payload);
+        }
+        for (RegionFile region : regions.values()) {
+            region.close();
+        }
+        regions.clear();
+        closed = true;
+    }
+}
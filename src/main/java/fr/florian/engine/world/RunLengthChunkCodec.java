@@ -0,0 +1,134 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Run-length encodes the palette indices of a chunk along the Y axis.
+ * Terrain columns are mostly a few long runs (dirt, grass, then air), which this codec
+ * usually stores in one byte each.
+ *
+ * Payload: the palette (size and block IDs, as variable-length integers), then the runs in storage
+ * order (Y fastest, a run may continue into the next column). A run of a palette index below
+ * {@value #SHORT_INDICES} and at most {@value #SHORT_LENGTH} voxels is a single byte
+ * {@code 0iilllll} (length minus one); any other run is the byte {@code 0x80} followed by the
+ * index and the length as variable-length integers. The bytes {@code 0x81} to {@code 0xFF} are never
+ * written and are rejected, so every chunk has a single valid encoding.
+ */
+public class RunLengthChunkCodec extends ChunkCodec {
+
+    /** Number of palette indices that fit in a short run. */
+    private static final int SHORT_INDICES = 4;
+
+    /** Longest run that fits in a short run. */
+    private static final int SHORT_LENGTH = 32;
+
+    /** Marker of a long run. */
+    private static final int LONG_RUN = 0x80;
+
+    /** Per-thread scratch buffers, reused from one chunk to the next. */
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Scratch state of an encoding or decoding thread.
+     */
+    private static final class Scratch {
+        int[] indices = new int[0];
+        int[] palette = new int[16];
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * @param id The unique codec ID.
+     */
+    public RunLengthChunkCodec(int id) {
+        super(id, "Run-length");
+    }
+
+    @Override
+    protected byte[] encodeStorage(ChunkStorage storage) {
+        Scratch scratch = scratches.get();
+        int volume = storage.getVolume();
+        int paletteSize = storage.getPaletteSize();
+        if (scratch.indices.length < volume) {
+            scratch.indices = new int[volume];
+        }
+        // Worst case: the palette, then one long run (1 + 3 + 5 bytes) per voxel
+        int capacity = 5 + paletteSize * 3 + volume * 9;
+        if (scratch.buffer.capacity() < capacity) {
+            scratch.buffer = ByteBuffer.allocate(capacity);
+        }
+        int[] indices = scratch.indices;
+        ByteBuffer buffer = scratch.buffer.clear();
+
+        writeVarInt(buffer, paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            writeVarInt(buffer, storage.getPaletteId(i));
+        }
+
+        storage.getIndices(indices);
+        int voxel = 0;
+        while (voxel < volume) {
+            int index = indices[voxel];
+            int start = voxel;
+            while (++voxel < volume && indices[voxel] == index) {
+                // Extend the run
+            }
+            int length = voxel - start;
+            if (index < SHORT_INDICES && length <= SHORT_LENGTH) {
+                buffer.put((byte) (index << 5 | (length - 1)));
+            } else {
+                buffer.put((byte) LONG_RUN);
+                writeVarInt(buffer, index);
+                writeVarInt(buffer, length);
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Override
+    protected ChunkStorage decodeStorage(ByteBuffer payload, int sizeX, int sizeY, int sizeZ) {
+        Scratch scratch = scratches.get();
+        int volume = sizeX * sizeY * sizeZ;
+        if (scratch.indices.length < volume) {
+            scratch.indices = new int[volume];
+        }
+        int[] indices = scratch.indices;
+
+        int paletteSize = readVarInt(payload);
+        if (paletteSize < 1 || paletteSize > volume) {
+            throw new IllegalArgumentException("Corrupted run-length chunk data (palette=" + paletteSize + ")");
+        }
+        if (scratch.palette.length < paletteSize) {
+            scratch.palette = new int[paletteSize];
+        }
+        int[] palette = scratch.palette;
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = readVarInt(payload);
+        }
+
+        int voxel = 0;
+        while (voxel < volume) {
+            int run = payload.get() & 0xFF;
+            int index;
+            int length;
+            if (run == LONG_RUN) {
+                index = readVarInt(payload);
+                length = readVarInt(payload);
+            } else if (run > LONG_RUN) {
+                throw new IllegalArgumentException("Corrupted run-length chunk data (run byte " + run + " at voxel " + voxel + ")");
+            } else {
+                index = run >>> 5;
+                length = (run & (SHORT_LENGTH - 1)) + 1;
+            }
+            if (index < 0 || index >= paletteSize || length <= 0 || length > volume - voxel) {
+                throw new IllegalArgumentException("Corrupted run-length chunk data (run at voxel " + voxel + ")");
+            }
+            Arrays.fill(indices, voxel, voxel + length, index);
+            voxel += length;
+        }
+        return ChunkStorage.fromIndices(sizeX, sizeY, sizeZ, palette, paletteSize, indices);
+    }
+}
@@ -0,0 +1,22 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.objects.ChunkStorage;
+
+/**
+ * Fills chunk storage with blocks.
+ * Implementations must be deterministic: the same generator (and seed) must always produce the same
+ * blocks for the same chunk origin, so chunks can be dropped and regenerated on demand.
+ * They are called concurrently from several worker threads.
+ */
+public interface TerrainGenerator {
+
+    /**
+     * Generates the blocks of one chunk.
+     *
+     * @param storage The empty (all air) storage to fill.
+     * @param originX World X coordinate of the chunk origin.
+     * @param originY World Y coordinate of the chunk origin.
+     * @param originZ World Z coordinate of the chunk origin.
+     */
+    void generate(ChunkStorage storage, int originX, int originY, int originZ);
+}
@@ -0,0 +1,603 @@
+package fr.florian.engine.world;
+
+import fr.florian.engine.graphics.Mesh;
+import fr.florian.engine.graphics.MeshUploadQueue;
+import fr.florian.engine.graphics.Renderer;
+import fr.florian.engine.maths.Frustum;
+import fr.florian.engine.maths.Vector3f;
+import fr.florian.engine.objects.BlockFace;
+import fr.florian.engine.objects.Camera;
+import fr.florian.engine.objects.Chunk;
+import fr.florian.engine.objects.ChunkMesher;
+import fr.florian.engine.objects.ChunkStorage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Owns the loaded chunks and streams them around the camera.
+ * Chunks are loaded ring by ring up to the view distance and unloaded once they are beyond
+ * the view distance plus a hysteresis margin, so moving back and forth across a chunk border
+ * does not reload the same chunks repeatedly.
+ *
+ * Unloaded chunks are kept, compressed, in a {@link ChunkCache} together with their meshes. New chunks are
+ * looked up in the cache, then in the {@link RegionStorage}, and only generated when they were never saved
+ * or their saved copy is corrupted.
+ * Chunks evicted from the cache are saved back if they were generated or modified since they were loaded.
+ *
+ * Rendering only draws the chunk sections found by the {@link OcclusionCuller} (or, when it is disabled,
+ * every section inside the view frustum).
+ *
+ * Chunks are meshed at a coarser level of detail the further they are from the camera, following distance
+ * bands: a chunk beyond the {@code n}th band uses level {@code n + 1}. A chunk only moves to a coarser level
+ * once it is {@value #LOD_HYSTERESIS} chunk beyond its band, so moving along a band border does not remesh
+ * the chunks on it back and forth.
+ *
+ * The world is a single horizontal layer of chunks. All methods must be called from the render thread.
+ */
+public class World {
+
+    /** Chunk Y coordinate of the loaded layer (chunk origins at Y = -{@link Chunk#DEPTH}). */
+    public static final int CHUNK_LAYER = -1;
+
+    /** Maximum number of chunks created per frame. */
+    private static final int MAX_LOADS_PER_FRAME = 16;
+
+    /** Bits used per packed chunk coordinate. */
+    private static final int COORD_BITS = 21;
+
+    /** Mask of one packed chunk coordinate. */
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+
+    /** Distance (in chunks) beyond a level of detail band before chunks switch to the coarser level. */
+    private static final int LOD_HYSTERESIS = 1;
+
+    /** Loaded chunks, keyed by packed chunk coordinates. */
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+
+    /** Generator filling new chunks. */
+    private final TerrainGenerator generator;
+
+    /** Region files the chunks are loaded from and saved to. */
+    private final RegionStorage regions;
+
+    /** Recently unloaded chunks. */
+    private final ChunkCache cache;
+
+    /** Cache entries taken by loaded chunks that are not populated yet, keyed by packed chunk coordinates. */
+    private final Map<Long, ChunkCache.Entry> pendingEntries = new HashMap<>();
+
+    /** Scheduler running chunk jobs. */
+    private final ChunkScheduler scheduler;
+
+    /** Queue uploading chunk meshes on the render thread. */
+    private final MeshUploadQueue uploadQueue;
+
+    /** Radius (in chunks) within which chunks are loaded. */
+    private int viewDistance;
+
+    /** Extra radius (in chunks) beyond the view distance before chunks are unloaded. */
+    private int hysteresis;
+
+    /** Distances (in chunks) beyond which each coarser level of detail is used, in increasing order. */
+    private int[] lodDistances = new int[0];
+
+    /** Whether distant chunks are meshed at a coarser level of detail. */
+    private boolean lodEnabled = true;
+
+    /** Chunk coordinates of the camera at the last streaming pass. */
+    private int centerX = Integer.MIN_VALUE, centerZ = Integer.MIN_VALUE;
+
+    /** Whether chunks within the view distance are still missing. */
+    private boolean loading;
+
+    /** View frustum of the camera, updated every frame. */
+    private final Frustum frustum = new Frustum();
+
+    /** Search for the sections visible from the camera. */
+    private final OcclusionCuller occlusionCuller = new OcclusionCuller();
+
+    /** Whether sections hidden behind opaque blocks are skipped. */
+    private boolean occlusionCulling = true;
+
+    /** Number of the current frame, used to mark the sections visited by the culling pass. */
+    private int frame;
+
+    /** Number of sections with geometry drawn during the last frame. */
+    private int drawnCount;
+
+    /** Number of vertices of the sections drawn during the last frame. */
+    private long drawnVertexCount;
+
+    /** Number of sections drawn during the last frame, by level of detail. */
+    private final int[] drawnByLod = new int[ChunkMesher.MAX_LOD + 1];
+
+    /** Number of sections with geometry skipped by frustum culling during the last frame. */
+    private int culledCount;
+
+    /** Number of sections with geometry inside the frustum but skipped by occlusion culling during the last frame. */
+    private int occludedCount;
+
+    /**
+     * Creates an empty world.
+     *
+     * @param generator    The terrain generator.
+     * @param regions      The region files of the world.
+     * @param cacheBudget  The memory budget of the unloaded chunk cache, in bytes.
+     * @param scheduler    The scheduler running chunk jobs.
+     * @param uploadQueue  The queue uploading chunk meshes.
+     * @param viewDistance The load radius, in chunks.
+     * @param hysteresis   The extra unload radius, in chunks.
+     */
+    public World(TerrainGenerator generator, RegionStorage regions, long cacheBudget, ChunkScheduler scheduler,
+                 MeshUploadQueue uploadQueue, int viewDistance, int hysteresis) {
+        this.generator = generator;
+        this.regions = regions;
+        this.cache = new ChunkCache(cacheBudget, this::onEvicted);
+        this.scheduler = scheduler;
+        this.uploadQueue = uploadQueue;
+        this.viewDistance = viewDistance;
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Packs chunk coordinates into a single map key.
+     *
+     * @param x Chunk X coordinate.
+     * @param y Chunk Y coordinate.
+     * @param z Chunk Z coordinate.
+     * @return The packed key.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & COORD_MASK) << (2 * COORD_BITS)) | ((y & COORD_MASK) << COORD_BITS) | (z & COORD_MASK);
+    }
+
+    /** @return The chunk X coordinate of a packed key. */
+    public static int unpackX(long key) {
+        return (int) (key << (64 - 3 * COORD_BITS) >> (64 - COORD_BITS));
+    }
+
+    /** @return The chunk Y coordinate of a packed key. */
+    public static int unpackY(long key) {
+        return (int) (key << (64 - 2 * COORD_BITS) >> (64 - COORD_BITS));
+    }
+
+    /** @return The chunk Z coordinate of a packed key. */
+    public static int unpackZ(long key) {
+        return (int) (key << (64 - COORD_BITS) >> (64 - COORD_BITS));
+    }
+
+    /**
+     * Streams chunks around the camera, then updates every loaded chunk.
+     *
+     * @param camera The camera around which chunks are loaded.
+     */
+    public void update(Camera camera) {
+        Vector3f position = camera.getPosition();
+        int cameraX = Math.floorDiv((int) Math.floor(position.getX()), Chunk.SIZE);
+        int cameraZ = Math.floorDiv((int) Math.floor(position.getZ()), Chunk.SIZE);
+
+        if (cameraX != centerX || cameraZ != centerZ) {
+            centerX = cameraX;
+            centerZ = cameraZ;
+            unloadDistantChunks();
+            updateLevelsOfDetail();
+            loading = true;
+        }
+        if (loading) {
+            loading = loadMissingChunks();
+        }
+        if (!pendingEntries.isEmpty()) {
+            pendingEntries.keySet().removeIf(key -> chunks.get(key).isGenerated());
+        }
+
+        for (Chunk chunk : chunks.values()) {
+            chunk.update();
+        }
+    }
+
+    /**
+     * Loads missing chunks in rings of increasing radius around the camera.
+     *
+     * @return True if some chunks are still missing after this pass.
+     */
+    private boolean loadMissingChunks() {
+        int loaded = 0;
+        for (int radius = 0; radius <= viewDistance; radius++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    // Only visit the border of the ring, within a circular view distance
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != radius || dx * dx + dz * dz > viewDistance * viewDistance) {
+                        continue;
+                    }
+                    int x = centerX + dx;
+                    int z = centerZ + dz;
+                    if (chunks.containsKey(pack(x, CHUNK_LAYER, z))) {
+                        continue;
+                    }
+                    if (loaded == MAX_LOADS_PER_FRAME) {
+                        return true;
+                    }
+                    loadChunk(x, CHUNK_LAYER, z);
+                    loaded++;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a chunk, links it to its loaded neighbours and schedules its loading.
+     */
+    private void loadChunk(int x, int y, int z) {
+        Vector3f origin = new Vector3f(x * Chunk.SIZE, y * Chunk.DEPTH, z * Chunk.SIZE);
+        Chunk chunk = new Chunk(origin, scheduler, uploadQueue);
+        chunk.setLod(levelOfDetail(chunk));
+        chunks.put(pack(x, y, z), chunk);
+
+        ChunkCache.Entry cached = cache.remove(x, y, z);
+        if (cached != null) {
+            // Kept until the chunk is populated, so that it goes back to the cache if the chunk is unloaded first
+            pendingEntries.put(pack(x, y, z), cached);
+            int meshGeneration = chunk.getMeshGeneration();
+            scheduler.submit(chunk, ChunkScheduler.JobType.LOAD, () -> chunk.populate(
+                    RegionStorage.decode(ByteBuffer.wrap(cached.blocks())), cached.modified(),
+                    cached.meshes(), cached.meshedNeighbours(), cached.meshedLod(), meshGeneration));
+        } else {
+            scheduler.submit(chunk, ChunkScheduler.JobType.LOAD, () -> {
+                ChunkStorage saved;
+                try {
+                    saved = regions.load(x, y, z);
+                } catch (RuntimeException e) {
+                    // A corrupted chunk is generated again rather than left as a hole in the world
+                    System.err.println("Failed to load chunk " + x + ", " + y + ", " + z + ", generating it again: " + e);
+                    saved = null;
+                }
+                if (saved != null) {
+                    chunk.populate(saved, false);
+                } else {
+                    scheduler.submit(chunk, ChunkScheduler.JobType.GENERATION, () -> generateChunk(chunk, x, y, z));
+                }
+            });
+        }
+
+        for (BlockFace face : BlockFace.VALUES) {
+            Chunk neighbour = getChunk(x + face.getDx(), y + face.getDy(), z + face.getDz());
+            if (neighbour != null) {
+                chunk.link(face, neighbour);
+            }
+        }
+    }
+
+    /**
+     * Fills a chunk that was never saved using the terrain generator. Runs on a worker thread.
+     */
+    private void generateChunk(Chunk chunk, int x, int y, int z) {
+        ChunkStorage storage = new ChunkStorage(Chunk.SIZE, Chunk.DEPTH, Chunk.SIZE);
+        generator.generate(storage, x * Chunk.SIZE, y * Chunk.DEPTH, z * Chunk.SIZE);
+        chunk.populate(storage, true);
+    }
+
+    /**
+     * Unloads a chunk, moving its compressed blocks and up-to-date meshes to the cache.
+     * A chunk unloaded before the cache entry it was loaded from populated it puts that entry back.
+     */
+    private void unloadChunk(Chunk chunk) {
+        List<Mesh> meshes = chunk.hasUpToDateMeshes() ? chunk.getMeshes() : null;
+        int meshedNeighbours = chunk.getMeshedNeighbours();
+        int meshedLod = chunk.getMeshedLod();
+        chunk.unlink();
+        chunk.destroy();
+        int x = chunkX(chunk), y = chunkY(chunk), z = chunkZ(chunk);
+        ChunkCache.Entry pending = pendingEntries.remove(pack(x, y, z));
+        if (chunk.isGenerated()) {
+            byte[] blocks = regions.encode(chunk.getStorage());
+            cache.put(x, y, z, new ChunkCache.Entry(x, y, z, blocks, chunk.isModified(), meshes, meshedNeighbours, meshedLod));
+        } else if (pending != null) {
+            cache.put(x, y, z, pending);
+        }
+    }
+
+    /**
+     * Saves a chunk evicted from the cache in the background if it changed since it was loaded.
+     */
+    private void onEvicted(ChunkCache.Entry entry) {
+        if (entry.modified()) {
+            int x = entry.x(), y = entry.y(), z = entry.z();
+            regions.queueSave(x, y, z, entry.blocks());
+            Vector3f origin = new Vector3f(x * Chunk.SIZE, y * Chunk.DEPTH, z * Chunk.SIZE);
+            scheduler.submit(origin, ChunkScheduler.JobType.SAVE, () -> regions.save(x, y, z));
+        }
+    }
+
+    /**
+     * Unloads the chunks beyond the view distance plus the hysteresis margin, freeing their GPU resources.
+     */
+    private void unloadDistantChunks() {
+        int limit = viewDistance + hysteresis;
+        Iterator<Chunk> iterator = chunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            int dx = chunkX(chunk) - centerX;
+            int dz = chunkZ(chunk) - centerZ;
+            if (dx * dx + dz * dz > limit * limit) {
+                unloadChunk(chunk);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Assigns every loaded chunk the level of detail of its distance to the camera.
+     */
+    private void updateLevelsOfDetail() {
+        for (Chunk chunk : chunks.values()) {
+            chunk.setLod(levelOfDetail(chunk));
+        }
+    }
+
+    /**
+     * Returns the level of detail of a chunk from its distance to the camera, starting from its current level
+     * so that it only becomes coarser {@value #LOD_HYSTERESIS} chunk beyond a band.
+     */
+    private int levelOfDetail(Chunk chunk) {
+        if (!lodEnabled) {
+            return 0;
+        }
+        int dx = chunkX(chunk) - centerX;
+        int dz = chunkZ(chunk) - centerZ;
+        double distance = Math.sqrt((double) dx * dx + (double) dz * dz);
+        int level = Math.min(chunk.getLod(), lodDistances.length);
+        while (level < lodDistances.length && distance > lodDistances[level] + LOD_HYSTERESIS) {
+            level++;
+        }
+        while (level > 0 && distance <= lodDistances[level - 1]) {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * Renders the chunk sections that may be visible from the camera, then counts the skipped ones.
+     *
+     * @param renderer The renderer.
+     * @param camera   The current camera.
+     */
+    public void render(Renderer renderer, Camera camera) {
+        renderer.beginFrame(camera);
+        frustum.update(renderer.getCameraUniforms().getViewProjection());
+        frame++;
+        drawnCount = 0;
+        drawnVertexCount = 0;
+        Arrays.fill(drawnByLod, 0);
+
+        ObjIntConsumer<Chunk> draw = (chunk, section) -> {
+            if (chunk.hasSectionMesh(section)) {
+                chunk.renderSection(renderer, section);
+                drawnCount++;
+                drawnVertexCount += chunk.getMeshes().get(section).getVertexCount();
+                drawnByLod[chunk.getMeshedLod()]++;
+            }
+        };
+        if (!occlusionCulling || !occlusionCuller.cull(this, camera.getPosition(), frustum, frame, draw)) {
+            for (Chunk chunk : chunks.values()) {
+                for (int section = 0; section < Chunk.SECTIONS; section++) {
+                    if (chunk.isSectionInFrustum(frustum, section)) {
+                        chunk.visit(section, frame);
+                        draw.accept(chunk, section);
+                    }
+                }
+            }
+        }
+        renderer.flush();
+
+        culledCount = 0;
+        occludedCount = 0;
+        for (Chunk chunk : chunks.values()) {
+            for (int section = 0; section < Chunk.SECTIONS; section++) {
+                if (!chunk.hasSectionMesh(section) || chunk.isVisited(section, frame)) {
+                    continue;
+                }
+                if (chunk.isSectionInFrustum(frustum, section)) {
+                    occludedCount++;
+                } else {
+                    culledCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Requests every loaded chunk to be remeshed (e.g. after changing the meshing mode).
+     * Cached meshes of unloaded chunks, and of chunks still loading from the cache, are dropped.
+     */
+    public void markAllDirty() {
+        for (Chunk chunk : chunks.values()) {
+            chunk.markDirty();
+        }
+        pendingEntries.replaceAll((key, entry) -> entry.withoutMeshes());
+        cache.dropMeshes();
+    }
+
+    /**
+     * Returns the chunk at the given chunk coordinates.
+     *
+     * @param x Chunk X coordinate.
+     * @param y Chunk Y coordinate.
+     * @param z Chunk Z coordinate.
+     * @return The chunk, or null if it is not loaded.
+     */
+    public Chunk getChunk(int x, int y, int z) {
+        return chunks.get(pack(x, y, z));
+    }
+
+    /**
+     * Returns the loaded chunk adjacent to a face of another chunk.
+     *
+     * @param chunk The chunk.
+     * @param face  The face of the chunk.
+     * @return The neighbouring chunk, or null if it is not loaded.
+     */
+    public Chunk getNeighbour(Chunk chunk, BlockFace face) {
+        return getChunk(chunkX(chunk) + face.getDx(), chunkY(chunk) + face.getDy(), chunkZ(chunk) + face.getDz());
+    }
+
+    /** @return The chunk X coordinate of a chunk. */
+    public static int chunkX(Chunk chunk) {
+        return Math.floorDiv((int) chunk.getPosition().getX(), Chunk.SIZE);
+    }
+
+    /** @return The chunk Y coordinate of a chunk. */
+    public static int chunkY(Chunk chunk) {
+        return Math.floorDiv((int) chunk.getPosition().getY(), Chunk.DEPTH);
+    }
+
+    /** @return The chunk Z coordinate of a chunk. */
+    public static int chunkZ(Chunk chunk) {
+        return Math.floorDiv((int) chunk.getPosition().getZ(), Chunk.SIZE);
+    }
+
+    /** @return The loaded chunks. */
+    public Collection<Chunk> getChunks() {
+        return chunks.values();
+    }
+
+    /** @return The cache of unloaded chunks. */
+    public ChunkCache getCache() {
+        return cache;
+    }
+
+    /** @return The number of sections drawn during the last frame. */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    /** @return The number of vertices of the sections drawn during the last frame. */
+    public long getDrawnVertexCount() {
+        return drawnVertexCount;
+    }
+
+    /**
+     * Returns the number of sections drawn during the last frame at a level of detail.
+     *
+     * @param lod The level of detail, from 0 to {@link ChunkMesher#MAX_LOD}.
+     * @return The number of sections drawn at this level.
+     */
+    public int getDrawnCount(int lod) {
+        return drawnByLod[lod];
+    }
+
+    /** @return The number of sections skipped by frustum culling during the last frame. */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /** @return The number of sections inside the frustum skipped by occlusion culling during the last frame. */
+    public int getOccludedCount() {
+        return occludedCount;
+    }
+
+    /** @return True if sections hidden behind opaque blocks are skipped. */
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    /**
+     * Enables or disables occlusion culling. Frustum culling is always enabled.
+     *
+     * @param occlusionCulling True to skip sections hidden behind opaque blocks.
+     */
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+    }
+
+    /** @return The number of loaded chunks. */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /** @return The load radius, in chunks. */
+    public int getViewDistance() {
+        return viewDistance;
+    }
+
+    /**
+     * Changes the load radius. Chunks are loaded or unloaded on the next update.
+     *
+     * @param viewDistance The new radius, in chunks.
+     */
+    public void setViewDistance(int viewDistance) {
+        this.viewDistance = viewDistance;
+        centerX = Integer.MIN_VALUE;
+    }
+
+    /** @return The distances (in chunks) beyond which each coarser level of detail is used. */
+    public int[] getLodDistances() {
+        return lodDistances.clone();
+    }
+
+    /**
+     * Sets the level of detail bands: chunks further than the {@code n}th distance are meshed at level {@code n + 1}.
+     * Chunks whose level changes are remeshed on the next update.
+     *
+     * @param distances The band distances, in chunks, in increasing order (at most {@link ChunkMesher#MAX_LOD}).
+     * @throws IllegalArgumentException If there are too many distances or they are not increasing.
+     */
+    public void setLodDistances(int... distances) {
+        if (distances.length > ChunkMesher.MAX_LOD) {
+            throw new IllegalArgumentException("At most " + ChunkMesher.MAX_LOD + " level of detail distances are supported");
+        }
+        for (int i = 1; i < distances.length; i++) {
+            if (distances[i] <= distances[i - 1]) {
+                throw new IllegalArgumentException("Level of detail distances must be increasing: " + Arrays.toString(distances));
+            }
+        }
+        lodDistances = distances.clone();
+        updateLevelsOfDetail();
+    }
+
+    /** @return True if distant chunks are meshed at a coarser level of detail. */
+    public boolean isLodEnabled() {
+        return lodEnabled;
+    }
+
+    /**
+     * Enables or disables the levels of detail. When disabled, every chunk is meshed at full detail.
+     * Chunks whose level changes are remeshed on the next update.
+     *
+     * @param lodEnabled True to mesh distant chunks at a coarser level of detail.
+     */
+    public void setLodEnabled(boolean lodEnabled) {
+        this.lodEnabled = lodEnabled;
+        updateLevelsOfDetail();
+    }
+
+    /**
+     * Unloads every chunk, frees their GPU resources, then writes the modified loaded and cached chunks
+     * and closes the region files.
+     */
+    public void destroy() {
+        List<Chunk> loaded = new ArrayList<>(chunks.values());
+        for (Chunk chunk : loaded) {
+            chunk.destroy();
+            int x = chunkX(chunk), y = chunkY(chunk), z = chunkZ(chunk);
+            ChunkCache.Entry pending = pendingEntries.get(pack(x, y, z));
+            if (chunk.isGenerated() && chunk.isModified()) {
+                regions.queueSave(x, y, z, chunk.getStorage());
+            } else if (!chunk.isGenerated() && pending != null && pending.modified()) {
+                regions.queueSave(x, y, z, pending.blocks());
+            }
+        }
+        chunks.clear();
+        pendingEntries.clear();
+        cache.clear();
+        regions.close();
+    }
+}
@@ -1,11 +1,11 @@
 #version 330 core
 
 in vec3 passColor;
-in vec2 passTextureCoord;
+in vec3 passTextureCoord;
 
 out vec4 outColor;
 
-uniform sampler2D tex;
+uniform sampler2DArray tex;
 
 void main() {
     outColor = texture(tex, passTextureCoord);
@@ -0,0 +1,24 @@
+#version 460 core
+
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+layout(location = 3) in float textureLayer;
+layout(location = 4) in vec3 drawOffset;
+
+out vec3 passColor;
+out vec3 passTextureCoord;
+
+// Camera matrices of the frame, shared by every shader (see CameraUniforms)
+layout(std140, row_major, binding = 0) uniform Camera {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+};
+
+void main() {
+    // The translation of each draw replaces the model matrix
+    gl_Position = viewProjection * vec4(position + drawOffset, 1.0);
+    passColor = color;
+    passTextureCoord = vec3(textureCoord, textureLayer);
+}
@@ -0,0 +1,31 @@
+#version 460 core
+
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+layout(location = 3) in float face;
+layout(location = 4) in vec3 offset;
+layout(location = 5) in vec3 layers0;
+layout(location = 6) in vec3 layers1;
+
+out vec3 passColor;
+out vec3 passTextureCoord;
+
+// Camera matrices of the frame, shared by every shader (see CameraUniforms)
+layout(std140, row_major, binding = 0) uniform Camera {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+};
+
+uniform mat4 model;
+
+void main() {
+    gl_Position = viewProjection * model * vec4(position + offset, 1.0);
+    passColor = color;
+
+    // Pick the texture layer of the face of this instance
+    int f = int(face);
+    float layer = f < 3 ? layers0[f] : layers1[f - 3];
+    passTextureCoord = vec3(textureCoord, layer);
+}
@@ -0,0 +1,29 @@
+#version 460 core
+
+// Packed vertex (see VertexFormat.PACKED): position, texture coordinates, face and ambient occlusion in the
+// first word, texture layer in the second
+layout(location = 0) in uvec2 packedVertex;
+
+out vec3 passColor;
+out vec3 passTextureCoord;
+
+// Camera matrices of the frame, shared by every shader (see CameraUniforms)
+layout(std140, row_major, binding = 0) uniform Camera {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+};
+
+uniform mat4 model;
+
+void main() {
+    uint word = packedVertex.x;
+    vec3 position = vec3(word & 31u, (word >> 5) & 31u, (word >> 10) & 31u);
+    vec2 textureCoord = vec2((word >> 15) & 31u, (word >> 20) & 31u);
+    // Bits 25 to 27 hold the face index and bits 28 to 29 the ambient occlusion level, unused for now
+    float textureLayer = float(packedVertex.y & 0xFFFFu);
+
+    gl_Position = viewProjection * model * vec4(position, 1.0);
+    passColor = vec3(0.0);
+    passTextureCoord = vec3(textureCoord, textureLayer);
+}
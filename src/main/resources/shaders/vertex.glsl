@@ -1,18 +1,24 @@
 #version 460 core
 
-in vec3 position;
-in vec3 color;
-in vec2 textureCoord;
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+layout(location = 3) in float textureLayer;
 
 out vec3 passColor;
-out vec2 passTextureCoord;
+out vec3 passTextureCoord;
+
+// Camera matrices of the frame, shared by every shader (see CameraUniforms)
+layout(std140, row_major, binding = 0) uniform Camera {
+    mat4 view;
+    mat4 projection;
+    mat4 viewProjection;
+};
 
 uniform mat4 model;
-uniform mat4 view;
-uniform mat4 projection;
 
 void main() {
-    gl_Position = projection * view * model * vec4(position, 1.0);
+    gl_Position = viewProjection * model * vec4(position, 1.0);
     passColor = color;
-    passTextureCoord = textureCoord;
+    passTextureCoord = vec3(textureCoord, textureLayer);
 }